@@ -0,0 +1,196 @@
+package com.furnituredesign;
+
+import com.furnituredesign.models.Design;
+import com.furnituredesign.services.DesignFormat;
+import com.furnituredesign.services.DesignService;
+import com.furnituredesign.services.DesignValidator;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Headless validation and conversion of a directory tree of design files.
+//   BatchDesignTool <dir> [--threads N] [--convert json|fdb --out <dir>] [--report <file>]
+//                         [--canvas <width>x<height>]
+// Every .json and .fdb file under <dir> is loaded, validated and optionally converted on a
+// bounded worker pool. One line per file goes to the report (standard output by default),
+// followed by totals and throughput.
+
+public class BatchDesignTool {
+    private final DesignService designService = new DesignService();
+    private final DesignValidator validator;
+    private final Path sourceRoot;
+    private final DesignFormat convertTo;
+    private final Path outputRoot;
+    private final PrintWriter report;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger invalid = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger converted = new AtomicInteger();
+
+    BatchDesignTool(Path sourceRoot, DesignValidator validator, DesignFormat convertTo, Path outputRoot,
+                    PrintWriter report) {
+        this.sourceRoot = sourceRoot;
+        this.validator = validator;
+        this.convertTo = convertTo;
+        this.outputRoot = outputRoot;
+        this.report = report;
+    }
+
+    public static void main(String[] args) {
+        Path source = null;
+        Path output = null;
+        Path reportFile = null;
+        DesignFormat convertTo = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double canvasWidth = DesignValidator.DEFAULT_CANVAS_WIDTH;
+        double canvasHeight = DesignValidator.DEFAULT_CANVAS_HEIGHT;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--out" -> output = Path.of(args[++i]);
+                    case "--report" -> reportFile = Path.of(args[++i]);
+                    case "--convert" -> convertTo = parseFormat(args[++i]);
+                    case "--canvas" -> {
+                        String[] size = args[++i].split("x");
+                        canvasWidth = Double.parseDouble(size[0]);
+                        canvasHeight = Double.parseDouble(size[1]);
+                    }
+                    default -> {
+                        if (source != null || args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                        }
+                        source = Path.of(args[i]);
+                    }
+                }
+            }
+            if (source == null || !Files.isDirectory(source)) {
+                throw new IllegalArgumentException("A design directory is required");
+            }
+            if (convertTo != null && output == null) {
+                throw new IllegalArgumentException("--convert needs --out <dir>");
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("--threads must be at least 1");
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: BatchDesignTool <dir> [--threads N] [--convert json|fdb --out <dir>]"
+                    + " [--report <file>] [--canvas <width>x<height>]");
+            System.exit(2);
+            return;
+        }
+
+        try (PrintWriter report = reportFile != null
+                ? new PrintWriter(Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8))
+                : new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)))) {
+            BatchDesignTool tool = new BatchDesignTool(source, new DesignValidator(canvasWidth, canvasHeight),
+                    convertTo, output, report);
+            boolean clean = tool.run(threads);
+            report.flush();
+            if (!clean) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Batch run failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Returns true when every file loaded and validated cleanly
+    boolean run(int threads) throws IOException {
+        // The small queue with caller-runs keeps the directory walk from racing ahead of the workers
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        long start = System.nanoTime();
+        try (Stream<Path> files = Files.walk(sourceRoot)) {
+            files.filter(Files::isRegularFile)
+                    .filter(this::isDesignFile)
+                    .forEach(file -> pool.execute(() -> process(file)));
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int total = processed.get();
+        synchronized (report) {
+            report.printf("# %d files, %d invalid, %d failed to load, %d converted%n",
+                    total, invalid.get(), failed.get(), converted.get());
+            report.printf("# %.2f s on %d threads, %.1f files/s%n",
+                    seconds, threads, seconds > 0 ? total / seconds : 0);
+        }
+        return invalid.get() == 0 && failed.get() == 0;
+    }
+
+    private boolean isDesignFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        for (DesignFormat format : DesignFormat.values()) {
+            if (name.endsWith("." + format.getExtension())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void process(Path file) {
+        Path relative = sourceRoot.relativize(file);
+        String line;
+        try {
+            Design design = designService.read(file.toFile());
+            List<String> problems = validator.validate(design);
+            if (problems.isEmpty()) {
+                line = "OK\t" + relative + "\t" + design.getFurniture().size() + " items";
+            } else {
+                invalid.incrementAndGet();
+                line = "INVALID\t" + relative + "\t" + problems.size() + " problems\t"
+                        + String.join("; ", problems.subList(0, Math.min(5, problems.size())))
+                        + (problems.size() > 5 ? "; ..." : "");
+            }
+            if (convertTo != null) {
+                Path target = outputRoot.resolve(replaceExtension(relative, convertTo));
+                if (target.getParent() != null) {
+                    Files.createDirectories(target.getParent());
+                }
+                designService.write(design.getRoom(), design.getFurniture(), target.toFile());
+                converted.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            line = "FAILED\t" + relative + "\t" + e;
+        }
+        processed.incrementAndGet();
+        synchronized (report) {
+            report.println(line);
+        }
+    }
+
+    private static Path replaceExtension(Path path, DesignFormat format) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return path.resolveSibling(base + "." + format.getExtension());
+    }
+
+    private static DesignFormat parseFormat(String value) {
+        for (DesignFormat format : DesignFormat.values()) {
+            if (format.getExtension().equalsIgnoreCase(value) || format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown format " + value);
+    }
+}
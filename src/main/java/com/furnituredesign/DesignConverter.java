@@ -0,0 +1,61 @@
+package com.furnituredesign;
+
+import com.furnituredesign.models.Design;
+import com.furnituredesign.services.DesignFormat;
+import com.furnituredesign.services.DesignService;
+import java.io.File;
+import java.io.IOException;
+
+// Command line converter between design formats.
+//   DesignConverter <source> <target>   convert, format picked from the extensions
+//   DesignConverter --compare <source>  write the design in every format and report size and timings
+
+public class DesignConverter {
+
+    public static void main(String[] args) {
+        DesignService designService = new DesignService();
+        try {
+            if (args.length == 2 && args[0].equals("--compare")) {
+                compare(designService, new File(args[1]));
+            } else if (args.length == 2) {
+                long start = System.nanoTime();
+                designService.convertDesign(new File(args[0]), new File(args[1]));
+                System.out.printf("Converted %s -> %s in %.1f ms%n", args[0], args[1], millisSince(start));
+            } else {
+                System.err.println("Usage: DesignConverter <source> <target>");
+                System.err.println("       DesignConverter --compare <source>");
+                System.exit(2);
+            }
+        } catch (IOException e) {
+            System.err.println("Conversion failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void compare(DesignService designService, File source) throws IOException {
+        Design design = designService.read(source);
+        System.out.printf("%s: %d furniture items%n", source.getName(), design.getFurniture().size());
+        System.out.printf("%-8s %14s %12s %12s%n", "format", "bytes", "save ms", "load ms");
+
+        for (DesignFormat format : DesignFormat.values()) {
+            File target = File.createTempFile("design-compare", "." + format.getExtension());
+            try {
+                long start = System.nanoTime();
+                designService.write(design.getRoom(), design.getFurniture(), target);
+                double saveMillis = millisSince(start);
+
+                start = System.nanoTime();
+                designService.read(target);
+                double loadMillis = millisSince(start);
+
+                System.out.printf("%-8s %14d %12.1f %12.1f%n", format, target.length(), saveMillis, loadMillis);
+            } finally {
+                target.delete();
+            }
+        }
+    }
+
+    private static double millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+}
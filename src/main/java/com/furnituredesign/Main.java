@@ -1,5 +1,6 @@
 package com.furnituredesign;
 
+import com.furnituredesign.services.Database;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -39,6 +40,16 @@ public class Main extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        Database database = Database.getDefault();
+        // Run with -Dfurnituredesign.db.stats=true to see connection and query latencies
+        if (Boolean.getBoolean("furnituredesign.db.stats")) {
+            System.out.println("Database: " + database.getStats());
+        }
+        database.close();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,28 +1,46 @@
 package com.furnituredesign.controllers;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
 import javafx.scene.paint.Color;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
+import javafx.stage.WindowEvent;
 import com.furnituredesign.models.*;
+import com.furnituredesign.services.AsyncDesignSaver;
+import com.furnituredesign.services.DesignCatalog;
+import com.furnituredesign.services.DesignFormat;
+import com.furnituredesign.services.DesignJournal;
+import com.furnituredesign.services.DesignRepository;
 import com.furnituredesign.services.DesignService;
+import com.furnituredesign.services.UndoHistory;
+import com.furnituredesign.views.CollisionDetector;
+import com.furnituredesign.views.PlanRenderer;
+import com.furnituredesign.views.RenderScheduler;
+import com.furnituredesign.views.RoomScene3D;
+import com.furnituredesign.views.SceneBuilder3D;
+import com.furnituredesign.views.SpatialIndex;
+import com.furnituredesign.views.Viewport;
 import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.collections.ObservableList;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.SubScene;
-import javafx.scene.Group;
 import javafx.scene.PerspectiveCamera;
-import javafx.scene.paint.PhongMaterial;
-import javafx.scene.shape.Box;
-import javafx.scene.shape.Cylinder;
-import javafx.scene.PointLight;
 import javafx.scene.transform.Rotate;
-import javafx.scene.shape.Cylinder;
-import javafx.scene.Node;
 
 //MainController
 
@@ -53,13 +71,59 @@ public class MainController {
     private ToggleButton toggle3DView;
     @FXML
     private Label statusLabel;
+    @FXML
+    private ProgressIndicator sceneProgress;
+    @FXML
+    private MenuItem undoMenuItem;
+    @FXML
+    private MenuItem redoMenuItem;
 
     private final DesignService designService = new DesignService();
+    private final DesignCatalog designCatalog = new DesignCatalog(designService, Platform::runLater);
+    private final AsyncDesignSaver designSaver = new AsyncDesignSaver(designService, Platform::runLater);
+    private final DesignJournal journal = new DesignJournal(
+            new File(System.getProperty("user.home"), ".furniture-designer/autosave"));
+    // Edits offered either side of the current one in the undo history dialog
+    private static final int HISTORY_CHOICES = 50;
+    private final UndoHistory history = new UndoHistory();
+    private final UndoHistory.Editor historyEditor = new HistoryEditor();
+    private DesignChangeBus changeBus;
+    private DesignRepository designRepository;
+    // Library saves run here, one at a time
+    private final ExecutorService libraryWorker =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("library-save").factory());
+    private long libraryDesignId = -1;
     private Room currentRoom;
-    private List<Furniture> furnitureList = new ArrayList<>();
+    // Snapshots of it are handed to the background save, scene build and journal
+    private FurnitureList furnitureList = new FurnitureList();
+    private final SpatialIndex spatialIndex = new SpatialIndex();
+    private final CollisionDetector collisionDetector = new CollisionDetector(spatialIndex);
+    private final Viewport viewport = new Viewport();
+    private PlanRenderer planRenderer;
+    private RenderScheduler renderScheduler;
     private boolean is3DView = false;
+    private boolean shutDown;
+    private boolean librarySaving;
     private Furniture selectedFurniture = null;
+    // Where the dragged item was picked up
+    private double dragStartX, dragStartY;
     private double dragOffsetX, dragOffsetY;
+    private boolean dragMoved = false;
+    private boolean marqueeActive = false;
+    private double marqueeStartX, marqueeStartY, marqueeEndX, marqueeEndY;
+    private boolean planPanning = false;
+    private double planAnchorX, planAnchorY;
+    private RoomScene3D roomScene;
+    // Edits made while the 3D view is hidden, applied to the scene when it is shown again.
+    // Past the cap they are dropped and the scene is synced with the list instead.
+    private static final int MAX_HIDDEN_SCENE_CHANGES = 256;
+    private final List<DesignChange> hiddenSceneChanges = new ArrayList<>();
+    private boolean sceneStale;
+    private final SceneBuilder3D sceneBuilder = new SceneBuilder3D(Platform::runLater);
+    // Counts designs created, loaded or recovered; the 3D scene is rebuilt for each new one
+    private long designVersion;
+    private long builtDesignVersion = -1;
+    private long buildingDesignVersion = -1;
     private PerspectiveCamera camera3D;
     private double anchorX, anchorY;
     private double anchorAngleX = -20, anchorAngleY = -20;
@@ -71,9 +135,11 @@ public class MainController {
 
     @FXML
     public void initialize() {
-        // Initialize Furniture Types
-        furnitureTypeCombo.getItems().addAll(
-                "Chair", "Table", "Sofa", "Bed", "Cabinet", "BookShelf");
+        // Initialize Furniture Types from the catalog
+        for (FurnitureCatalog.Entry entry : FurnitureCatalog.getDefault().getEntries()) {
+            furnitureTypeCombo.getItems().add(entry.getName());
+        }
+        furnitureTypeCombo.setVisibleRowCount(15);
 
         // Set Default Colors
         wallColorPicker.setValue(Color.WHITE);
@@ -82,43 +148,72 @@ public class MainController {
         // Add listener for floor color change
         floorColorPicker.setOnAction(e -> {
             if (currentRoom != null) {
+                Room before = new Room(currentRoom);
                 currentRoom.setFloorColor(floorColorPicker.getValue().toString());
-                if (is3DView) {
-                    build3DRoomScene();
-                }
-                redraw();
+                journal.recordRoom(currentRoom);
+                history.recordRoom(before, currentRoom);
             }
         });
 
         // Set up List
         furnitureListView.setMaxHeight(Double.MAX_VALUE);
         furnitureListView.setMaxWidth(Double.MAX_VALUE);
+        furnitureListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        // The selected item is kept out of the merged 3D geometry so it can be picked and moved
+        furnitureListView.getSelectionModel().selectedItemProperty().addListener(
+                (obs, oldVal, newVal) -> updateSceneEditing());
 
         // Initialize canvas
+        planRenderer = new PlanRenderer(designCanvas, spatialIndex, viewport);
+        renderScheduler = new RenderScheduler(this::renderPlan, planRenderer::drawDirty, this::build3DRoomScene,
+                this::update3DView);
+        // Views follow the model through change events, delivered once per pulse
+        changeBus = new DesignChangeBus(renderScheduler::runBeforeRender);
+        changeBus.addListener(this::designChanged);
+        attachDesign();
         designCanvas.widthProperty().addListener((obs, oldVal, newVal) -> redraw());
         designCanvas.heightProperty().addListener((obs, oldVal, newVal) -> redraw());
 
         // Mouse events for dragging furniture
         designCanvas.setOnMousePressed(e -> {
-            double mouseX = e.getX();
-            double mouseY = e.getY();
+            // Picks need the index to include edits still waiting for the pulse
+            changeBus.flush();
+            dragMoved = false;
+            marqueeActive = false;
             selectedFurniture = null;
-            for (Furniture furniture : furnitureList) {
-                double fx = furniture.getX();
-                double fy = furniture.getY();
-                double fw = 50, fh = 50; // pixel size for drawing
-                if (mouseX >= fx && mouseX <= fx + fw && mouseY >= fy && mouseY <= fy + fh) {
-                    selectedFurniture = furniture;
-                    dragOffsetX = mouseX - fx;
-                    dragOffsetY = mouseY - fy;
-                    break;
-                }
+            // Right button or shift pans the plan, as in the 3D view
+            planPanning = e.isSecondaryButtonDown() || e.isShiftDown();
+            if (planPanning) {
+                planAnchorX = e.getX();
+                planAnchorY = e.getY();
+                return;
+            }
+            double mouseX = viewport.toPlanX(e.getX());
+            double mouseY = viewport.toPlanY(e.getY());
+            selectedFurniture = spatialIndex.pick(mouseX, mouseY);
+            if (selectedFurniture != null) {
+                dragOffsetX = mouseX - selectedFurniture.getX();
+                dragOffsetY = mouseY - selectedFurniture.getY();
+                dragStartX = selectedFurniture.getX();
+                dragStartY = selectedFurniture.getY();
+                // Dragging it moves one node rather than rebuilding its merged batch
+                updateSceneEditing();
+            } else if (currentRoom != null) {
+                // Pressing on empty floor starts a selection rectangle
+                marqueeActive = true;
+                marqueeStartX = marqueeEndX = e.getX();
+                marqueeStartY = marqueeEndY = e.getY();
             }
         });
         designCanvas.setOnMouseDragged(e -> {
-            if (selectedFurniture != null) {
-                double mouseX = e.getX();
-                double mouseY = e.getY();
+            if (planPanning) {
+                viewport.panBy(e.getX() - planAnchorX, e.getY() - planAnchorY);
+                planAnchorX = e.getX();
+                planAnchorY = e.getY();
+                redraw();
+            } else if (selectedFurniture != null) {
+                double mouseX = viewport.toPlanX(e.getX());
+                double mouseY = viewport.toPlanY(e.getY());
                 // Room bounds in pixels
                 double minX = 50, minY = 50;
                 double maxX = designCanvas.getWidth() - 100;
@@ -128,12 +223,64 @@ public class MainController {
                 // Clamp to room
                 newX = Math.max(minX, Math.min(newX, minX + maxX - 50));
                 newY = Math.max(minY, Math.min(newY, minY + maxY - 50));
+                // Block moves into other furniture, sliding along it where possible.
+                // Items that already overlap something may move freely until they are clear.
+                double oldX = selectedFurniture.getX();
+                double oldY = selectedFurniture.getY();
+                if (!collisionDetector.collidesAt(selectedFurniture, oldX, oldY)
+                        && collisionDetector.collidesAt(selectedFurniture, newX, newY)) {
+                    if (!collisionDetector.collidesAt(selectedFurniture, newX, oldY)) {
+                        newY = oldY;
+                    } else if (!collisionDetector.collidesAt(selectedFurniture, oldX, newY)) {
+                        newX = oldX;
+                    } else {
+                        return;
+                    }
+                }
+                // The index and the plan catch up once per pulse, however many drag events came in
                 selectedFurniture.setX(newX);
                 selectedFurniture.setY(newY);
+                dragMoved = true;
+            } else if (marqueeActive) {
+                marqueeEndX = e.getX();
+                marqueeEndY = e.getY();
+                redraw();
+            }
+        });
+        designCanvas.setOnMouseReleased(e -> {
+            if (selectedFurniture != null && dragMoved) {
+                // The whole drag is one journal record and one undo step
+                int index = furnitureList.indexOf(selectedFurniture);
+                journal.recordMove(index, selectedFurniture.getX(), selectedFurniture.getY());
+                history.recordMove(index, selectedFurniture, dragStartX, dragStartY,
+                        selectedFurniture.getX(), selectedFurniture.getY());
+            }
+            if (marqueeActive) {
+                marqueeActive = false;
+                changeBus.flush();
+                double zoom = viewport.getZoom();
+                List<Furniture> inside = spatialIndex.queryInside(
+                        viewport.toPlanX(Math.min(marqueeStartX, marqueeEndX)),
+                        viewport.toPlanY(Math.min(marqueeStartY, marqueeEndY)),
+                        Math.abs(marqueeEndX - marqueeStartX) / zoom, Math.abs(marqueeEndY - marqueeStartY) / zoom);
+                selectItems(inside);
+                redraw();
+                updateStatus("Selected " + inside.size() + " items");
+            }
+            if (selectedFurniture != null) {
+                selectedFurniture = null;
+                updateSceneEditing();
+            }
+            planPanning = false;
+        });
+        // Zoom the plan around the cursor
+        designCanvas.setOnScroll(e -> {
+            if (!is3DView && e.getDeltaY() != 0) {
+                viewport.zoomAt(Math.pow(1.1, e.getDeltaY() / 40), e.getX(), e.getY());
                 redraw();
+                updateStatus(String.format("Zoom %.0f%%", viewport.getZoom() * 100));
             }
         });
-        designCanvas.setOnMouseReleased(e -> selectedFurniture = null);
 
         // Zoom for 3D view
         room3DSubScene.setOnScroll(e -> {
@@ -142,6 +289,8 @@ public class MainController {
                 double newZ = camera3D.getTranslateZ() + (delta > 0 ? 50 : -50);
                 newZ = Math.max(-10000, Math.min(-200, newZ));
                 camera3D.setTranslateZ(newZ);
+                // Detail levels switch as the camera moves closer or further away
+                renderScheduler.requestView();
             }
         });
         // Mouse  rotation and panning
@@ -170,13 +319,14 @@ public class MainController {
                     rotateY.setAngle(cameraAngleY);
                     rotateX.setAngle(cameraAngleX);
                 }
+                renderScheduler.requestView();
             }
         });
 
         // Sync color changes to 3D
         wallColorPicker.setOnAction(e -> {
             if (is3DView)
-                build3DRoomScene();
+                renderScheduler.requestScene();
         });
         
         // Configure toggle buttons for 2D/3D view
@@ -184,6 +334,34 @@ public class MainController {
         
         // Set default status
         updateStatus("Ready");
+
+        // Offer to restore a session that ended without saving
+        Platform.runLater(this::offerRecovery);
+        // Closing the window must also flush the journal and finish pending saves
+        Platform.runLater(() -> designCanvas.getScene().getWindow()
+                .addEventHandler(WindowEvent.WINDOW_HIDDEN, e -> shutdown()));
+    }
+
+    private void offerRecovery() {
+        Design recovered = journal.recover();
+        if (recovered == null) {
+            return;
+        }
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Recover Design");
+        alert.setHeaderText(null);
+        alert.setContentText("An unsaved design from a previous session was found. Recover it?");
+        if (alert.showAndWait().filter(ButtonType.OK::equals).isPresent()) {
+            currentRoom = recovered.getRoom();
+            furnitureList = new FurnitureList(recovered.getFurniture());
+            furnitureListView.getItems().setAll(furnitureList);
+            spatialIndex.rebuild(furnitureList);
+            designReplaced();
+            redraw();
+            updateStatus("Recovered unsaved design");
+        } else {
+            journal.reset(null);
+        }
     }
     
     private void setupViewToggles() {
@@ -238,12 +416,16 @@ public class MainController {
 
             // Create new room
             currentRoom = new Room(width, length, height);
+            libraryDesignId = -1;
             furnitureList.clear();
             furnitureListView.getItems().clear();
+            spatialIndex.clear();
+            designReplaced();
 
             // Apply colors
             currentRoom.setWallColor(wallColorPicker.getValue().toString());
             currentRoom.setFloorColor(floorColorPicker.getValue().toString());
+            journal.reset(snapshot());
 
             // Redraw the canvas
             redraw();
@@ -267,7 +449,7 @@ public class MainController {
             showError("Please select a furniture type");
             return;
         }
-        Furniture furniture = new Furniture(type);
+        Furniture furniture = furnitureList.create(type);
         // Place in center of room area (in pixels)
         furniture.setX(50 + (designCanvas.getWidth() - 100) / 2 - 25);
         furniture.setY(50 + (designCanvas.getHeight() - 100) / 2 - 25);
@@ -275,20 +457,33 @@ public class MainController {
         if (furnitureColorPicker != null && furnitureColorPicker.getValue() != null) {
             furniture.setColor(furnitureColorPicker.getValue().toString());
         }
-        furnitureList.add(furniture);
-        furnitureListView.getItems().add(furniture);
-        redraw();
+        journal.recordAdd(furniture);
+        history.recordAdd(furnitureList.size() - 1, furniture);
         updateStatus("Added " + type + " to the room");
     }
 
     @FXML
     private void handleRemoveFurniture() {
-        Furniture selected = furnitureListView.getSelectionModel().getSelectedItem();
-        if (selected != null) {
-            furnitureList.remove(selected);
-            furnitureListView.getItems().remove(selected);
-            redraw();
-            updateStatus("Removed " + selected.getType() + " from the room");
+        List<Furniture> selected = new ArrayList<>(furnitureListView.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) {
+            return;
+        }
+        // Found in one pass and removed with one rebuild, however many are selected
+        int[] positions = furnitureList.indexesOf(selected);
+        Furniture[] removed = furnitureList.removeAt(positions);
+        // Recorded last to first, so each index is still the item's position when it goes
+        int[] indexes = new int[positions.length];
+        Furniture[] items = new Furniture[removed.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = positions[positions.length - 1 - i];
+            items[i] = removed[removed.length - 1 - i];
+            journal.recordRemove(indexes[i]);
+        }
+        history.recordRemove(indexes, items);
+        if (selected.size() == 1) {
+            updateStatus("Removed " + selected.get(0).getType() + " from the room");
+        } else {
+            updateStatus("Removed " + selected.size() + " items from the room");
         }
     }
 
@@ -301,13 +496,44 @@ public class MainController {
 
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Design");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("Design Files", "*.json"));
+        FileChooser.ExtensionFilter binaryFilter =
+                new FileChooser.ExtensionFilter("Binary Design Files", DesignFormat.BINARY.getPattern());
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Design Files", DesignFormat.JSON.getPattern()), binaryFilter);
 
         File file = fileChooser.showSaveDialog(designCanvas.getScene().getWindow());
         if (file != null) {
-            designService.saveDesign(currentRoom, furnitureList, file);
-            updateStatus("Design saved");
+            // The format follows the file name, so a name typed without one gets the chosen filter's
+            DesignFormat format = fileChooser.getSelectedExtensionFilter() == binaryFilter
+                    ? DesignFormat.BINARY : DesignFormat.JSON;
+            file = format.withExtension(file);
+            // Written in the background from a snapshot, so editing can continue meanwhile
+            long mark = journal.mark();
+            designSaver.save(snapshot(), file, new AsyncDesignSaver.Listener() {
+                @Override
+                public void onStarted(File target, int furnitureCount) {
+                    updateStatus("Saving " + target.getName() + " (" + furnitureCount + " items)...");
+                }
+
+                @Override
+                public void onSaved(File target, int furnitureCount, long millis) {
+                    // Only once the file is on disk; a no-op if edits came in meanwhile
+                    journal.markSaved(mark);
+                    updateStatus("Design saved to " + target.getName() + " in " + millis + " ms");
+                }
+
+                @Override
+                public void onSuperseded(File target) {
+                    updateStatus("Skipped save to " + target.getName() + ", a newer save replaced it");
+                }
+
+                @Override
+                public void onFailed(File target, IOException error) {
+                    updateStatus("Save failed");
+                    showError("Could not save " + target.getName() + ": " + error.getMessage());
+                }
+            });
+            updateStatus("Save queued");
         }
     }
 
@@ -316,21 +542,455 @@ public class MainController {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Load Design");
         fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("Design Files", "*.json"));
+                new FileChooser.ExtensionFilter("Design Files",
+                        DesignFormat.JSON.getPattern(), DesignFormat.BINARY.getPattern()));
 
         File file = fileChooser.showOpenDialog(designCanvas.getScene().getWindow());
         if (file != null) {
             Design design = designService.loadDesign(file);
             if (design != null) {
-                currentRoom = design.getRoom();
-                furnitureList = design.getFurniture();
-                furnitureListView.getItems().setAll(furnitureList);
-                redraw();
+                showLoadedDesign(design);
+                libraryDesignId = -1;
                 updateStatus("Design loaded");
             }
         }
     }
 
+    @FXML
+    private void handleBrowseDesigns() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Browse Designs");
+        File directory = directoryChooser.showDialog(designCanvas.getScene().getWindow());
+        if (directory == null) {
+            return;
+        }
+
+        // Only summaries are read, in the background; furniture is loaded once a design is picked
+        updateStatus("Listing designs in " + directory.getName() + "...");
+        designCatalog.list(directory, new DesignCatalog.Listener() {
+            @Override
+            public void onListed(File listed, List<DesignSummary> designs, long millis) {
+                if (designs.isEmpty()) {
+                    updateStatus("Ready");
+                    showError("No design files in " + listed.getName());
+                    return;
+                }
+                updateStatus("Listed " + designs.size() + " designs in " + millis + " ms");
+                chooseDesign(designs);
+            }
+
+            @Override
+            public void onFailed(File listed, RuntimeException error) {
+                error.printStackTrace();
+                updateStatus("Could not list designs");
+                showError("Could not list " + listed.getName() + ": " + error.getMessage());
+            }
+        });
+    }
+
+    private void chooseDesign(List<DesignSummary> designs) {
+        ChoiceDialog<DesignSummary> dialog = new ChoiceDialog<>(designs.get(0), designs);
+        dialog.setTitle("Browse Designs");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Design:");
+        DesignSummary chosen = dialog.showAndWait().orElse(null);
+        if (chosen == null) {
+            return;
+        }
+        Design design = designService.loadDesign(chosen.getFile());
+        if (design != null) {
+            showLoadedDesign(design);
+            libraryDesignId = -1;
+            updateStatus("Design loaded");
+        }
+    }
+
+    @FXML
+    private void handleSaveToLibrary() {
+        if (currentRoom == null) {
+            showError("No design to save");
+            return;
+        }
+        if (librarySaving) {
+            updateStatus("Still saving to the library");
+            return;
+        }
+        long id = libraryDesignId;
+        String name = null;
+        if (id < 0) {
+            TextInputDialog dialog = new TextInputDialog("Untitled Design");
+            dialog.setTitle("Save to Library");
+            dialog.setHeaderText(null);
+            dialog.setContentText("Design name:");
+            name = dialog.showAndWait().map(String::trim).orElse("");
+            if (name.isEmpty()) {
+                return;
+            }
+        }
+
+        // Written in the background from a snapshot, like file saves
+        DesignSnapshot design = snapshot();
+        long version = designVersion;
+        long mark = journal.mark();
+        String newName = name;
+        librarySaving = true;
+        updateStatus("Saving to library...");
+        libraryWorker.execute(() -> {
+            try {
+                DesignRepository repository = getDesignRepository();
+                long savedId = id;
+                if (savedId >= 0) {
+                    repository.updateDesign(savedId, design.getRoom(), design.getFurniture());
+                } else {
+                    savedId = repository.saveDesign(newName, design.getRoom(), design.getFurniture());
+                }
+                long result = savedId;
+                Platform.runLater(() -> {
+                    librarySaving = false;
+                    // Unless another design was opened meanwhile
+                    if (version == designVersion) {
+                        libraryDesignId = result;
+                    }
+                    // Only once committed; a no-op if edits came in meanwhile
+                    journal.markSaved(mark);
+                    updateStatus("Design saved to library");
+                });
+            } catch (SQLException e) {
+                Platform.runLater(() -> {
+                    librarySaving = false;
+                    updateStatus("Library save failed");
+                    showError("Could not save design to library: " + e.getMessage());
+                });
+            }
+        });
+    }
+
+    @FXML
+    private void handleOpenFromLibrary() {
+        // Database work stays off the FX thread; only the dialog runs on it
+        updateStatus("Reading library...");
+        libraryWorker.execute(() -> {
+            try {
+                List<DesignSummary> designs = getDesignRepository().listDesigns(0, 500);
+                Platform.runLater(() -> chooseFromLibrary(designs));
+            } catch (SQLException e) {
+                Platform.runLater(() -> {
+                    updateStatus("Library unavailable");
+                    showError("Could not open design library: " + e.getMessage());
+                });
+            }
+        });
+    }
+
+    private void chooseFromLibrary(List<DesignSummary> designs) {
+        if (designs.isEmpty()) {
+            updateStatus("Library is empty");
+            showError("The design library is empty");
+            return;
+        }
+        ChoiceDialog<DesignSummary> dialog = new ChoiceDialog<>(designs.get(0), designs);
+        dialog.setTitle("Open from Library");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Design:");
+        DesignSummary chosen = dialog.showAndWait().orElse(null);
+        if (chosen == null) {
+            updateStatus("Ready");
+            return;
+        }
+        updateStatus("Opening " + chosen.getName() + "...");
+        long version = designVersion;
+        libraryWorker.execute(() -> {
+            try {
+                Design design = getDesignRepository().loadDesign(chosen.getId());
+                Platform.runLater(() -> {
+                    if (design == null) {
+                        updateStatus("Design no longer in library");
+                    } else if (version != designVersion) {
+                        // Another design was opened while this one loaded
+                        updateStatus("Skipped opening " + chosen.getName());
+                    } else {
+                        showLoadedDesign(design);
+                        libraryDesignId = chosen.getId();
+                        updateStatus("Opened " + chosen.getName() + " from library");
+                    }
+                });
+            } catch (SQLException e) {
+                Platform.runLater(() -> showError("Could not open design from library: " + e.getMessage()));
+            }
+        });
+    }
+
+    // Also called from the library worker
+    private synchronized DesignRepository getDesignRepository() throws SQLException {
+        if (designRepository == null) {
+            designRepository = new DesignRepository();
+        }
+        return designRepository;
+    }
+
+    private void showLoadedDesign(Design design) {
+        currentRoom = design.getRoom();
+        furnitureList = new FurnitureList(design.getFurniture());
+        furnitureListView.getItems().setAll(furnitureList);
+        spatialIndex.rebuild(furnitureList);
+        designReplaced();
+        journal.reset(snapshot());
+        journal.markSaved(journal.mark());
+        redraw();
+    }
+
+    @FXML
+    private void handleEditMenuShowing() {
+        String undo = history.getUndoLabel();
+        String redo = history.getRedoLabel();
+        undoMenuItem.setText(undo != null ? "Undo " + undo : "Undo");
+        undoMenuItem.setDisable(undo == null);
+        redoMenuItem.setText(redo != null ? "Redo " + redo : "Redo");
+        redoMenuItem.setDisable(redo == null);
+    }
+
+    @FXML
+    private void handleUndo() {
+        String label = history.getUndoLabel();
+        if (history.undo(historyEditor)) {
+            historyApplied("Undid " + label);
+        }
+    }
+
+    @FXML
+    private void handleRedo() {
+        String label = history.getRedoLabel();
+        if (history.redo(historyEditor)) {
+            historyApplied("Redid " + label);
+        }
+    }
+
+    // Jumps straight to any point in the history, undoing or redoing everything in between
+    @FXML
+    private void handleUndoHistory() {
+        if (history.size() == 0) {
+            updateStatus("Nothing to undo");
+            return;
+        }
+        // Only the edits nearest the current point are offered
+        int from = Math.max(0, history.getPosition() - HISTORY_CHOICES);
+        int to = Math.min(history.size(), history.getPosition() + HISTORY_CHOICES);
+        List<HistoryChoice> choices = new ArrayList<>();
+        HistoryChoice current = null;
+        for (int position = to; position >= from; position--) {
+            String text = position == 0 ? "Before " + history.getLabel(0) : position + ". " + history.getLabel(position - 1);
+            HistoryChoice choice = new HistoryChoice(position,
+                    position == history.getPosition() ? text + " (current)" : text);
+            choices.add(choice);
+            if (position == history.getPosition()) {
+                current = choice;
+            }
+        }
+        ChoiceDialog<HistoryChoice> dialog = new ChoiceDialog<>(current, choices);
+        dialog.setTitle("Undo History");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Go back or forward to:");
+        dialog.showAndWait().ifPresent(choice -> {
+            int steps = choice.position() - history.getPosition();
+            if (steps != 0) {
+                history.jumpTo(choice.position(), historyEditor);
+                historyApplied((steps < 0 ? "Undid " + -steps : "Redid " + steps) + " edits");
+            }
+        });
+    }
+
+    private record HistoryChoice(int position, String text) {
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private void historyApplied(String message) {
+        updateStatus(message);
+    }
+
+    // Applies undo and redo to the design, journaling each step like the edit it reverses.
+    // The views follow through the change bus, so a jump is one update however long.
+    private class HistoryEditor implements UndoHistory.Editor {
+        @Override
+        public void insert(int index, Furniture item) {
+            furnitureList.add(index, item);
+            journal.recordInsert(index, item);
+        }
+
+        @Override
+        public void remove(int index) {
+            furnitureList.remove(index);
+            journal.recordRemove(index);
+        }
+
+        @Override
+        public void move(int index, double x, double y) {
+            Furniture item = furnitureList.get(index);
+            item.setX(x);
+            item.setY(y);
+            journal.recordMove(index, x, y);
+        }
+
+        @Override
+        public void setRoom(Room room) {
+            currentRoom.setWidth(room.getWidth());
+            currentRoom.setLength(room.getLength());
+            currentRoom.setHeight(room.getHeight());
+            currentRoom.setWallColor(room.getWallColor());
+            currentRoom.setFloorColor(room.getFloorColor());
+            if (room.hasWallColor()) {
+                wallColorPicker.setValue(Color.web(room.getWallColor()));
+            }
+            if (room.hasFloorColor()) {
+                floorColorPicker.setValue(Color.web(room.getFloorColor()));
+            }
+            journal.recordRoom(currentRoom);
+        }
+    }
+
+    // Brings the spatial index, list view, plan and 3D scene up to date with the edits of
+    // one pulse. Only the footprints that changed are repainted unless the room did.
+    private void designChanged(DesignChange change) {
+        for (Furniture item : change.getRemoved()) {
+            spatialIndex.remove(item);
+            DesignChange.Before before = change.getBefore(item);
+            if (before != null) {
+                planRenderer.invalidate(before);
+            } else {
+                planRenderer.invalidate(item);
+            }
+        }
+        for (Furniture item : change.getAdded()) {
+            spatialIndex.insert(item);
+            planRenderer.invalidate(item);
+        }
+        boolean relabel = false;
+        for (Furniture item : change.getChanged()) {
+            int kinds = change.getKinds(item);
+            if ((kinds & (DesignChange.MOVED | DesignChange.RESIZED | DesignChange.RETYPED)) != 0) {
+                spatialIndex.update(item);
+            }
+            relabel |= (kinds & (DesignChange.RESIZED | DesignChange.RETYPED)) != 0;
+            planRenderer.invalidate(change.getBefore(item));
+            planRenderer.invalidate(item);
+        }
+        if (change.isStructural()) {
+            updateListView(change);
+        } else if (relabel) {
+            furnitureListView.refresh();
+        }
+        if (change.isRoomChanged()) {
+            renderScheduler.requestPlan();
+        } else {
+            renderScheduler.requestPlanRegion();
+        }
+        // A scene built for this design takes the edits directly, or when it is next shown;
+        // one still being built catches up when it is installed
+        if (roomScene != null && builtDesignVersion == designVersion) {
+            if (is3DView) {
+                roomScene.apply(change);
+            } else {
+                deferSceneChange(change);
+            }
+        }
+        if (is3DView) {
+            renderScheduler.requestScene();
+        }
+    }
+
+    private void deferSceneChange(DesignChange change) {
+        if (sceneStale) {
+            return;
+        }
+        if (hiddenSceneChanges.size() >= MAX_HIDDEN_SCENE_CHANGES) {
+            hiddenSceneChanges.clear();
+            sceneStale = true;
+        } else {
+            hiddenSceneChanges.add(change);
+        }
+    }
+
+    // Brings a scene that was hidden up to date, rebuilding each touched batch once
+    private void applyHiddenSceneChanges() {
+        if (sceneStale) {
+            roomScene.sync(furnitureList);
+        } else if (!hiddenSceneChanges.isEmpty()) {
+            roomScene.apply(hiddenSceneChanges);
+        }
+        hiddenSceneChanges.clear();
+        sceneStale = false;
+    }
+
+    // The item dragged on the plan, or else the one selected in the list, is kept as its own
+    // node. Left alone while the 3D view is hidden; it is set again when the view is shown.
+    private void updateSceneEditing() {
+        if (roomScene != null && is3DView) {
+            roomScene.setEditing(sceneEditingItem());
+        }
+    }
+
+    private Furniture sceneEditingItem() {
+        return selectedFurniture != null ? selectedFurniture
+                : furnitureListView.getSelectionModel().getSelectedItem();
+    }
+
+    // Removes and inserts only the items that changed, keeping the selection of the rest
+    private void updateListView(DesignChange change) {
+        ObservableList<Furniture> items = furnitureListView.getItems();
+        if (!change.getRemoved().isEmpty()) {
+            Set<Furniture> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            removed.addAll(change.getRemoved());
+            items.removeIf(removed::contains);
+        }
+        if (!change.getAdded().isEmpty()) {
+            Set<Furniture> added = Collections.newSetFromMap(new IdentityHashMap<>());
+            added.addAll(change.getAdded());
+            // In list order, so each lands at its final position
+            for (int i = 0; i < furnitureList.size() && !added.isEmpty(); i++) {
+                Furniture item = furnitureList.get(i);
+                if (added.remove(item)) {
+                    items.add(i, item);
+                }
+            }
+        }
+    }
+
+    // Selects exactly these items in the list view. Their positions are found in one pass,
+    // since selecting by item searches the whole list for each one.
+    private void selectItems(List<Furniture> items) {
+        MultipleSelectionModel<Furniture> selection = furnitureListView.getSelectionModel();
+        selection.clearSelection();
+        int[] positions = furnitureList.indexesOf(items);
+        if (positions.length > 0) {
+            selection.selectIndices(positions[0], Arrays.copyOfRange(positions, 1, positions.length));
+        }
+    }
+
+    // Points the change bus at the current design, dropping what was pending for the last one
+    private void attachDesign() {
+        changeBus.discard();
+        furnitureList.setChangeBus(changeBus);
+        if (currentRoom != null) {
+            currentRoom.setChangeBus(changeBus);
+        }
+    }
+
+    @FXML
+    private void handleFindOverlaps() {
+        changeBus.flush();
+        List<CollisionDetector.Overlap> overlaps = collisionDetector.findAllOverlaps(furnitureList);
+        List<Furniture> overlapping = new ArrayList<>(2 * overlaps.size());
+        for (CollisionDetector.Overlap overlap : overlaps) {
+            overlapping.add(overlap.getFirst());
+            overlapping.add(overlap.getSecond());
+        }
+        selectItems(overlapping);
+        updateStatus(overlaps.isEmpty() ? "No overlapping furniture"
+                : overlaps.size() + " overlapping pairs selected");
+    }
+
     @FXML
     private void handle2DView() {
         is3DView = false;
@@ -349,7 +1009,7 @@ public class MainController {
         room3DSubScene.setVisible(true);
         toggle2DView.setSelected(false);
         toggle3DView.setSelected(true);
-        build3DRoomScene();
+        renderScheduler.requestScene();
         updateStatus("Switched to 3D View");
     }
 
@@ -357,7 +1017,7 @@ public class MainController {
     private void handleApplyShading() {
         if (is3DView) {
             // Apply advanced shading to 3D view
-            build3DRoomScene();
+            renderScheduler.requestScene();
             updateStatus("Applied shading to 3D view");
         }
     }
@@ -375,31 +1035,72 @@ public class MainController {
             camera3D.setTranslateX(cameraPanX);
             camera3D.setTranslateY(cameraPanY);
             camera3D.setTranslateZ(-1000);
+            renderScheduler.requestView();
+            updateStatus("View reset");
+        } else if (!is3DView) {
+            viewport.reset();
+            redraw();
             updateStatus("View reset");
         }
     }
 
     @FXML
     private void handleExit() {
+        shutdown();
         System.exit(0);
     }
 
+    // Stops background work and closes the saver and journal; safe to call more than once
+    private void shutdown() {
+        if (shutDown) {
+            return;
+        }
+        shutDown = true;
+        renderScheduler.stop();
+        sceneBuilder.close();
+        // Run with -Dfurnituredesign.render.stats=true to see how many renders were coalesced
+        if (Boolean.getBoolean("furnituredesign.render.stats")) {
+            System.out.println("Rendering: " + renderScheduler.getStats());
+            System.out.println("Sprites: " + planRenderer.getSpriteCache().getStats());
+            if (roomScene != null) {
+                System.out.println("3D scene: " + roomScene.getStats());
+            }
+        }
+        libraryWorker.close();
+        designCatalog.close();
+        designSaver.close();
+        journal.close();
+    }
+
     @FXML
     private void handleNewDesign() {
         // Clear the current room and furniture
         currentRoom = null;
+        libraryDesignId = -1;
         furnitureList.clear();
         furnitureListView.getItems().clear();
+        spatialIndex.clear();
+        designReplaced();
         roomWidthField.clear();
         roomLengthField.clear();
         roomHeightField.clear();
         wallColorPicker.setValue(Color.WHITE);
         floorColorPicker.setValue(Color.LIGHTGRAY);
+        journal.reset(null);
         redraw();
         updateStatus("Created new design");
     }
 
+    // Views are rendered at most once per pulse; see renderPlan and build3DRoomScene
     private void redraw() {
+        renderScheduler.requestPlan();
+        if (is3DView) {
+            // Room size, floor color and culling; furniture is kept up to date by designChanged
+            renderScheduler.requestScene();
+        }
+    }
+
+    private void renderPlan() {
         if (currentRoom == null)
             return;
 
@@ -414,88 +1115,14 @@ public class MainController {
     }
 
     private void draw2DView(GraphicsContext gc) {
-        // Fill background with white
-        gc.setFill(Color.WHITE);
-        gc.fillRect(0, 0, designCanvas.getWidth(), designCanvas.getHeight());
-
-        // Calculate room dimensions to match 3D view
-        double scale = 100; // Same scale as 3D view
-        double roomW = currentRoom.getWidth() * scale;
-        double roomL = currentRoom.getLength() * scale;
-
-        // Center the room in the canvas
-        double startX = (designCanvas.getWidth() - roomW) / 2;
-        double startY = (designCanvas.getHeight() - roomL) / 2;
-
-        // Fill room with wall color if a room exists
-        if (currentRoom != null) {
-            Color wallColor = Color.WHITE;
-            try {
-                wallColor = Color.web(currentRoom.getWallColor());
-            } catch (Exception ignored) {
-            }
-            gc.setFill(wallColor);
-            gc.fillRect(startX, startY, roomW, roomL);
-        }
-
-        // Draw room outline
-        gc.setStroke(Color.BLACK);
-        gc.strokeRect(startX, startY, roomW, roomL);
-
-        // Draw furniture at their (x, y) with specific shapes
-        for (Furniture furniture : furnitureList) {
-            Color color = Color.GRAY;
-            try {
-                color = Color.web(furniture.getColor());
-            } catch (Exception ignored) {
-            }
-            gc.setFill(color);
-            String type = furniture.getType().toLowerCase();
-            double x = furniture.getX();
-            double y = furniture.getY();
-            switch (type) {
-                case "chair":
-                    // Circle for chair
-                    gc.fillOval(x, y, 30, 30);
-                    gc.setStroke(Color.BLACK);
-                    gc.strokeOval(x, y, 30, 30);
-                    break;
-                case "table":
-                    // Standard rectangle 50x30
-                    gc.fillRect(x, y, 50, 30);
-                    gc.setStroke(Color.BLACK);
-                    gc.strokeRect(x, y, 50, 30);
-                    break;
-                case "sofa":
-                    // Rounded rectangle 60x30 with rounded edges
-                    gc.fillRoundRect(x, y, 60, 30, 15, 15);
-                    gc.setStroke(Color.BLACK);
-                    gc.strokeRoundRect(x, y, 60, 30, 15, 15);
-                    break;
-                case "bed":
-                    // Large rectangle 70x40
-                    gc.fillRect(x, y, 70, 40);
-                    gc.setStroke(Color.BLACK);
-                    gc.strokeRect(x, y, 70, 40);
-                    break;
-                case "cabinet":
-                    // Tall rectangle 30x50
-                    gc.fillRect(x, y, 30, 50);
-                    gc.setStroke(Color.BLACK);
-                    gc.strokeRect(x, y, 30, 50);
-                    break;
-                case "bookshelf":
-                    // Very narrow and tall rectangle (1:5 ratio)
-                    gc.fillRect(x, y, 15, 75);
-                    gc.setStroke(Color.BLACK);
-                    gc.strokeRect(x, y, 15, 75);
-                    break;
-                default:
-                    // Default square 40x40
-                    gc.fillRect(x, y, 40, 40);
-                    gc.setStroke(Color.BLACK);
-                    gc.strokeRect(x, y, 40, 40);
-            }
+        planRenderer.setDesign(currentRoom, furnitureList);
+        planRenderer.drawAll();
+        if (marqueeActive) {
+            gc.setStroke(Color.DODGERBLUE);
+            gc.setLineDashes(4);
+            gc.strokeRect(Math.min(marqueeStartX, marqueeEndX), Math.min(marqueeStartY, marqueeEndY),
+                    Math.abs(marqueeEndX - marqueeStartX), Math.abs(marqueeEndY - marqueeStartY));
+            gc.setLineDashes(null);
         }
     }
 
@@ -514,390 +1141,131 @@ public class MainController {
         }
     }
 
+    // A build started for an earlier design is cancelled; its scene would be out of date
+    private void designReplaced() {
+        designVersion++;
+        history.clear();
+        attachDesign();
+        sceneBuilder.cancel();
+        buildingDesignVersion = -1;
+        hiddenSceneChanges.clear();
+        sceneStale = false;
+        showSceneProgress(false);
+    }
+
     private void build3DRoomScene() {
         if (currentRoom == null)
             return;
-        double width = currentRoom.getWidth();
-        double length = currentRoom.getLength();
-        double height = currentRoom.getHeight();
-        double scale = 100;
-        double roomW = width * scale;
-        double roomL = length * scale;
-        double roomH = height * scale;
-
-        Group root3D = new Group();
-
-        // Floor with selected floor color
-        Box floor = new Box(roomW, 5, roomL);
-        PhongMaterial floorMat = new PhongMaterial();
-        Color selectedFloorColor = floorColorPicker.getValue();
-        floorMat.setDiffuseColor(selectedFloorColor);
-        floor.setMaterial(floorMat);
-        floor.setTranslateY(roomH / 2);
-        root3D.getChildren().add(floor);
-
-        // Furniture
-        for (Furniture furniture : furnitureList) {
-            String type = furniture.getType().toLowerCase();
-            double fw = 40, fl = 40, fh = 40;
-
-            // Create appropriate 3D shape based on furniture type
-            javafx.scene.Node furnitureShape;
-            switch (type) {
-                case "chair":
-                    // Create a group for the chair
-                    Group chairGroup = new Group();
-
-                    // Seat - a flat cylinder
-                    Cylinder seat = new Cylinder(15, 5);
-                    PhongMaterial seatMat = new PhongMaterial();
-                    try {
-                        seatMat.setDiffuseColor(Color.web(furniture.getColor()));
-                    } catch (Exception e) {
-                        seatMat.setDiffuseColor(Color.BROWN);
-                    }
-                    seat.setMaterial(seatMat);
-                    seat.setTranslateY(0); // Seat height from center
-
-                    // Legs - 4 cylinders
-                    int legHeight = 25;
-                    double legOffset = 10;
-
-                    Cylinder leg1 = new Cylinder(2, legHeight);
-                    leg1.setMaterial(new PhongMaterial(Color.SADDLEBROWN));
-                    leg1.setTranslateX(-legOffset);
-                    leg1.setTranslateZ(-legOffset);
-                    leg1.setTranslateY(legHeight / 2.0 + 2.5);
-
-                    Cylinder leg2 = new Cylinder(2, legHeight);
-                    leg2.setMaterial(new PhongMaterial(Color.SADDLEBROWN));
-                    leg2.setTranslateX(legOffset);
-                    leg2.setTranslateZ(-legOffset);
-                    leg2.setTranslateY(legHeight / 2.0 + 2.5);
-
-                    Cylinder leg3 = new Cylinder(2, legHeight);
-                    leg3.setMaterial(new PhongMaterial(Color.SADDLEBROWN));
-                    leg3.setTranslateX(-legOffset);
-                    leg3.setTranslateZ(legOffset);
-                    leg3.setTranslateY(legHeight / 2.0 + 2.5);
-
-                    Cylinder leg4 = new Cylinder(2, legHeight);
-                    leg4.setMaterial(new PhongMaterial(Color.SADDLEBROWN));
-                    leg4.setTranslateX(legOffset);
-                    leg4.setTranslateZ(legOffset);
-                    leg4.setTranslateY(legHeight / 2.0 + 2.5);
-
-                    // Optional: simple backrest (Box or Cylinder)
-                    Box backrest = new Box(30, 20, 2);
-                    backrest.setMaterial(new PhongMaterial(Color.SADDLEBROWN));
-                    backrest.setTranslateY(-10);
-                    backrest.setTranslateZ(-13); // Move behind the seat
-
-                    // Add parts to the group
-                    chairGroup.getChildren().addAll(seat, leg1, leg2, leg3, leg4, backrest);
-
-                    // Set shape and dimensions
-                    furnitureShape = chairGroup;
-                    fw = fl = 30;
-                    fh = 35; // 30 (legs + seat) + small backrest
-                    break;
-                case "table":
-                    // Create a group for the table
-                    Group tableGroup = new Group();
-
-                    // Table top with beveled edges
-                    Box tableTop = new Box(50, 4, 30);
-                    PhongMaterial tableMat = new PhongMaterial();
-                    try {
-                        tableMat.setDiffuseColor(Color.web(furniture.getColor()));
-                    } catch (Exception e) {
-                        tableMat.setDiffuseColor(Color.GRAY);
-                    }
-                    tableTop.setMaterial(tableMat);
-                    tableTop.setTranslateY(-10); // Raise it up to rest on legs
-
-                    // Add beveled edges using thin boxes
-                    double bevelSize = 1;
-                    Box topBevel = new Box(52, bevelSize, 32);
-                    Box bottomBevel = new Box(52, bevelSize, 32);
-                    topBevel.setMaterial(tableMat);
-                    bottomBevel.setMaterial(tableMat);
-                    topBevel.setTranslateY(-12);
-                    bottomBevel.setTranslateY(-8);
-
-                    // Table legs with more detail
-                    PhongMaterial legMat = new PhongMaterial(Color.DARKGRAY);
-                    double tableLegHeight = 20;
-                    double halfWidth = 23; // Slightly inset from edges
-                    double halfLength = 13;
-
-                    // Create decorative leg tops
-                    double legTopSize = 4;
-                    Box frontLeftLegTop = new Box(legTopSize, 2, legTopSize);
-                    Box frontRightLegTop = new Box(legTopSize, 2, legTopSize);
-                    Box backLeftLegTop = new Box(legTopSize, 2, legTopSize);
-                    Box backRightLegTop = new Box(legTopSize, 2, legTopSize);
-
-                    frontLeftLegTop.setMaterial(legMat);
-                    frontRightLegTop.setMaterial(legMat);
-                    backLeftLegTop.setMaterial(legMat);
-                    backRightLegTop.setMaterial(legMat);
-
-                    // Position leg tops
-                    frontLeftLegTop.setTranslateX(-halfWidth);
-                    frontLeftLegTop.setTranslateZ(-halfLength);
-                    frontLeftLegTop.setTranslateY(-1);
-
-                    frontRightLegTop.setTranslateX(halfWidth);
-                    frontRightLegTop.setTranslateZ(-halfLength);
-                    frontRightLegTop.setTranslateY(-1);
-
-                    backLeftLegTop.setTranslateX(-halfWidth);
-                    backLeftLegTop.setTranslateZ(halfLength);
-                    backLeftLegTop.setTranslateY(-1);
-
-                    backRightLegTop.setTranslateX(halfWidth);
-                    backRightLegTop.setTranslateZ(halfLength);
-                    backRightLegTop.setTranslateY(-1);
-
-                    // Create legs with slightly tapered design
-                    Cylinder frontLeftLeg = new Cylinder(1.5, tableLegHeight);
-                    Cylinder frontRightLeg = new Cylinder(1.5, tableLegHeight);
-                    Cylinder backLeftLeg = new Cylinder(1.5, tableLegHeight);
-                    Cylinder backRightLeg = new Cylinder(1.5, tableLegHeight);
-
-                    frontLeftLeg.setMaterial(legMat);
-                    frontRightLeg.setMaterial(legMat);
-                    backLeftLeg.setMaterial(legMat);
-                    backRightLeg.setMaterial(legMat);
-
-                    // Position legs
-                    frontLeftLeg.setTranslateX(-halfWidth);
-                    frontLeftLeg.setTranslateZ(-halfLength);
-                    frontLeftLeg.setTranslateY(tableLegHeight / 2);
-
-                    frontRightLeg.setTranslateX(halfWidth);
-                    frontRightLeg.setTranslateZ(-halfLength);
-                    frontRightLeg.setTranslateY(tableLegHeight / 2);
-
-                    backLeftLeg.setTranslateX(-halfWidth);
-                    backLeftLeg.setTranslateZ(halfLength);
-                    backLeftLeg.setTranslateY(tableLegHeight / 2);
-
-                    backRightLeg.setTranslateX(halfWidth);
-                    backRightLeg.setTranslateZ(halfLength);
-                    backRightLeg.setTranslateY(tableLegHeight / 2);
-
-                    // Add all parts to the group
-                    tableGroup.getChildren().addAll(
-                            tableTop, topBevel, bottomBevel,
-                            frontLeftLegTop, frontRightLegTop, backLeftLegTop, backRightLegTop,
-                            frontLeftLeg, frontRightLeg, backLeftLeg, backRightLeg);
-
-                    // Set the table as the furniture shape
-                    furnitureShape = tableGroup;
-                    fw = 50;
-                    fl = 30;
-                    fh = 25;
-                    break;
-                case "sofa":
-                    Group sofaGroup = new Group();
-
-                    // Seat base
-                    Box sofaBase = new Box(60, 15, 30);
-                    sofaBase.setTranslateY(5);
-
-                    // Backrest
-                    Box sofaBackrest = new Box(60, 15, 5);
-                    sofaBackrest.setTranslateY(-5);
-                    sofaBackrest.setTranslateZ(-12.5);
-
-                    // Armrests
-                    Box leftArm = new Box(5, 15, 30);
-                    leftArm.setTranslateX(-27.5);
-                    leftArm.setTranslateY(5);
-
-                    Box rightArm = new Box(5, 15, 30);
-                    rightArm.setTranslateX(27.5);
-                    rightArm.setTranslateY(5);
-
-                    PhongMaterial sofaMat = new PhongMaterial();
-                    try {
-                        sofaMat.setDiffuseColor(Color.web(furniture.getColor()));
-                    } catch (Exception e) {
-                        sofaMat.setDiffuseColor(Color.DARKSLATEGRAY);
-                    }
-                    sofaBase.setMaterial(sofaMat);
-                    sofaBackrest.setMaterial(sofaMat);
-                    leftArm.setMaterial(sofaMat);
-                    rightArm.setMaterial(sofaMat);
-
-                    sofaGroup.getChildren().addAll(sofaBase, sofaBackrest, leftArm, rightArm);
-                    furnitureShape = sofaGroup;
-                    fw = 60;
-                    fl = 30;
-                    fh = 25;
-                    break;
-                case "bed":
-                    Group bedGroup = new Group();
-
-                    // Bed base
-                    Box bedBase = new Box(70, 10, 40);
-                    bedBase.setTranslateY(5);
-
-                    // Headboard
-                    Box headboard = new Box(70, 15, 3);
-                    headboard.setTranslateZ(-18.5);
-                    headboard.setTranslateY(-2.5);
-
-                    // Pillow area
-                    Box pillow = new Box(60, 5, 10);
-                    pillow.setTranslateZ(-10);
-                    pillow.setTranslateY(-7.5);
-
-                    PhongMaterial bedMat = new PhongMaterial();
-                    try {
-                        bedMat.setDiffuseColor(Color.web(furniture.getColor()));
-                    } catch (Exception e) {
-                        bedMat.setDiffuseColor(Color.LIGHTGRAY);
-                    }
 
-                    bedBase.setMaterial(bedMat);
-                    headboard.setMaterial(bedMat);
-
-                    PhongMaterial pillowMat = new PhongMaterial(Color.WHITE);
-                    pillow.setMaterial(pillowMat);
-
-                    bedGroup.getChildren().addAll(bedBase, headboard, pillow);
-                    furnitureShape = bedGroup;
-                    fw = 70;
-                    fl = 40;
-                    fh = 20;
-                    break;
-                case "cabinet":
-                    Group cabinetGroup = new Group();
-
-                    // Main box
-                    Box cabinetBody = new Box(30, 50, 20);
-
-                    // Vertical divider line (visual)
-                    Box divider = new Box(1, 48, 1);
-                    divider.setTranslateZ(-9.5);
-                    divider.setMaterial(new PhongMaterial(Color.BLACK));
-
-                    PhongMaterial cabinetMat = new PhongMaterial();
-                    try {
-                        cabinetMat.setDiffuseColor(Color.web(furniture.getColor()));
-                    } catch (Exception e) {
-                        cabinetMat.setDiffuseColor(Color.SADDLEBROWN);
-                    }
+        if (roomScene == null || builtDesignVersion != designVersion) {
+            // A new design's scene is built in the background and swapped in when done
+            if (buildingDesignVersion != designVersion) {
+                startSceneBuild();
+            }
+            return;
+        }
 
-                    cabinetBody.setMaterial(cabinetMat);
-                    cabinetGroup.getChildren().addAll(cabinetBody, divider);
-                    furnitureShape = cabinetGroup;
-                    fw = 30;
-                    fl = 20;
-                    fh = 50;
-                    break;
-                case "bookshelf":
-                    Group shelfGroup = new Group();
-
-                    // Frame
-                    Box frame = new Box(15, 60, 20);
-
-                    // Add 3 horizontal shelves
-                    for (int i = -1; i <= 1; i++) {
-                        Box shelf = new Box(13, 1, 18);
-                        shelf.setTranslateY(i * 15); // evenly spaced
-                        shelfGroup.getChildren().add(shelf);
-                    }
+        // Furniture edits reach the scene through designChanged, or are applied here if they
+        // were made while it was hidden; the camera is left alone
+        roomScene.setEditing(sceneEditingItem());
+        applyHiddenSceneChanges();
+        roomScene.setRoom(currentRoom, designCanvas.getWidth(), designCanvas.getHeight());
+        roomScene.setFloorColor(floorColorPicker.getValue());
+        update3DView();
+    }
 
-                    PhongMaterial shelfMat = new PhongMaterial();
-                    try {
-                        shelfMat.setDiffuseColor(Color.web(furniture.getColor()));
-                    } catch (Exception e) {
-                        shelfMat.setDiffuseColor(Color.BURLYWOOD);
+    // The design as it is now, for work that reads it in the background
+    private DesignSnapshot snapshot() {
+        return DesignSnapshot.of(currentRoom, furnitureList);
+    }
+
+    private void startSceneBuild() {
+        long version = designVersion;
+        buildingDesignVersion = version;
+        sceneProgress.setProgress(0);
+        showSceneProgress(true);
+        updateStatus("Building 3D scene...");
+        sceneBuilder.build(snapshot(), floorColorPicker.getValue(), designCanvas.getWidth(),
+                designCanvas.getHeight(), new SceneBuilder3D.Listener() {
+                    @Override
+                    public void onProgress(double fraction) {
+                        sceneProgress.setProgress(fraction);
                     }
 
-                    frame.setMaterial(shelfMat);
-                    for (Node node : shelfGroup.getChildren()) {
-                        if (node instanceof Box && node != frame) {
-                            ((Box) node).setMaterial(shelfMat);
+                    @Override
+                    public void onBuilt(RoomScene3D scene, long millis) {
+                        if (version != designVersion) {
+                            return;
                         }
+                        buildingDesignVersion = -1;
+                        showSceneProgress(false);
+                        installRoomScene(scene);
+                        builtDesignVersion = version;
+                        updateStatus("3D scene built: " + scene.size() + " items in " + millis + " ms");
                     }
 
-                    shelfGroup.getChildren().add(frame);
-                    furnitureShape = shelfGroup;
-                    fw = 15;
-                    fl = 20;
-                    fh = 60;
-                    break;
-                default:
-                    // Default box
-                    Box defaultBox = new Box(40, 40, 40);
-                    PhongMaterial defaultMat = new PhongMaterial();
-                    try {
-                        defaultMat.setDiffuseColor(Color.web(furniture.getColor()));
-                    } catch (Exception e) {
-                        defaultMat.setDiffuseColor(Color.GRAY);
+                    @Override
+                    public void onFailed(Throwable error) {
+                        error.printStackTrace();
+                        if (version == buildingDesignVersion) {
+                            buildingDesignVersion = -1;
+                            showSceneProgress(false);
+                            updateStatus("Could not build the 3D scene");
+                        }
                     }
-                    defaultBox.setMaterial(defaultMat);
-                    furnitureShape = defaultBox;
-                    fw = fl = fh = 40;
-            }
+                });
+    }
+
+    // Swaps the finished scene in and catches it up with edits made while it was built
+    private void installRoomScene(RoomScene3D scene) {
+        double roomL = currentRoom.getLength() * 100;
+        double roomH = currentRoom.getHeight() * 100;
+
+        if (camera3D == null) {
+            // Camera setup with better initial position
+            camera3D = new PerspectiveCamera(true);
+            camera3D.setTranslateZ(-roomL * 1.5); // Move camera further back
+            camera3D.setTranslateY(-roomH / 3); // Adjust height
+            camera3D.setTranslateX(currentRoom.getWidth() * 100 / 4); // Move slightly to the right
+            camera3D.setNearClip(0.1);
+            camera3D.setFarClip(10000.0);
+            camera3D.setFieldOfView(45); // Wider field of view
+
+            // Initial rotation with better angles
+            cameraAngleX = -30; // Look down more
+            cameraAngleY = -45; // Look at the corner
+            cameraPanX = 0;
+            cameraPanY = 0;
+            rotateX = new Rotate(cameraAngleX, Rotate.X_AXIS);
+            rotateY = new Rotate(cameraAngleY, Rotate.Y_AXIS);
+            camera3D.getTransforms().setAll(rotateY, rotateX);
 
-            // Calculate furniture position to match 2D view
-            double canvasWidth = designCanvas.getWidth();
-            double canvasHeight = designCanvas.getHeight();
-            double startX = (canvasWidth - roomW) / 2;
-            double startY = (canvasHeight - roomL) / 2;
-
-            // Map 2D coordinates to 3D space
-            double px = furniture.getX() - startX - (roomW / 2) + fw / 2;
-            double pz = furniture.getY() - startY - (roomL / 2) + fl / 2;
-
-            // Place furniture exactly on the floor surface
-            furnitureShape.setTranslateX(px);
-            furnitureShape.setTranslateY(roomH / 2 - fh / 2 + 2.5); // +2.5 to place on floor surface
-            furnitureShape.setTranslateZ(pz);
-            root3D.getChildren().add(furnitureShape);
-        }
-
-        // Camera setup with better initial position
-        camera3D = new PerspectiveCamera(true);
-        camera3D.setTranslateZ(-roomL * 1.5); // Move camera further back
-        camera3D.setTranslateY(-roomH / 3); // Adjust height
-        camera3D.setTranslateX(roomW / 4); // Move slightly to the right
-        camera3D.setNearClip(0.1);
-        camera3D.setFarClip(10000.0);
-        camera3D.setFieldOfView(45); // Wider field of view
-
-        // Reset rotation and pan with better initial angles
-        cameraAngleX = -30; // Look down more
-        cameraAngleY = -45; // Look at the corner
-        cameraPanX = 0;
-        cameraPanY = 0;
-        rotateX = new Rotate(cameraAngleX, Rotate.X_AXIS);
-        rotateY = new Rotate(cameraAngleY, Rotate.Y_AXIS);
-        camera3D.getTransforms().setAll(rotateY, rotateX);
-
-        // Add multiple lights for better visibility
-        PointLight light1 = new PointLight(Color.WHITE);
-        light1.setTranslateX(0);
-        light1.setTranslateY(-roomH / 2);
-        light1.setTranslateZ(-roomL / 2);
-        root3D.getChildren().add(light1);
-
-        PointLight light2 = new PointLight(Color.WHITE);
-        light2.setTranslateX(roomW / 4);
-        light2.setTranslateY(-roomH / 3);
-        light2.setTranslateZ(-roomL / 4);
-        root3D.getChildren().add(light2);
-
-        // Set up SubScene with better background
-        room3DSubScene.setRoot(root3D);
-        room3DSubScene.setCamera(camera3D);
-        room3DSubScene.setFill(Color.rgb(240, 240, 240)); // Lighter background
+            // Set up SubScene with better background
+            room3DSubScene.setCamera(camera3D);
+            room3DSubScene.setFill(Color.rgb(240, 240, 240)); // Lighter background
+        }
+
+        roomScene = scene;
+        room3DSubScene.setRoot(roomScene.getRoot());
+        roomScene.setEditing(sceneEditingItem());
+        roomScene.setRoom(currentRoom, designCanvas.getWidth(), designCanvas.getHeight());
+        roomScene.setFloorColor(floorColorPicker.getValue());
+        roomScene.sync(furnitureList);
+        hiddenSceneChanges.clear();
+        sceneStale = false;
+        update3DView();
+    }
+
+    private void showSceneProgress(boolean show) {
+        sceneProgress.setVisible(show);
+        sceneProgress.setManaged(show);
+    }
+
+    // Culling and detail levels follow the camera
+    private void update3DView() {
+        if (roomScene != null) {
+            roomScene.updateView(camera3D, room3DSubScene.getWidth(), room3DSubScene.getHeight());
+        }
     }
 
     private void showSuccess(String message) {
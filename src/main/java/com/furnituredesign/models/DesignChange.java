@@ -0,0 +1,190 @@
+package com.furnituredesign.models;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//DesignChange
+// Everything that changed in a design between two notifications of a DesignChangeBus:
+// items added and removed, items moved, resized, recolored or retyped, and whether the room
+// changed. Changes to one item are merged: an item added and removed again in the same batch
+// does not appear at all, and an item that was added is not also reported as changed. A
+// changed item keeps where it was and its footprint before its first change in the batch, as
+// a small value rather than a copy of the item, so views can repaint where it used to be.
+// Items are compared by identity.
+
+public class DesignChange {
+    public static final int MOVED = 1;
+    public static final int RESIZED = 1 << 1;
+    public static final int RECOLORED = 1 << 2;
+    public static final int RETYPED = 1 << 3;
+
+    // Where an item was and what it covered on the plan
+    public record Before(double x, double y, FurnitureFootprint footprint) {
+    }
+
+    // An item's place in the order it was reported in. Dropping an item only marks its slot
+    // dead, so removing many items from a batch does not search a list for each one; the
+    // dead slots are skipped when the order is next read.
+    private static class Slot {
+        final Furniture item;
+        boolean live = true;
+
+        Slot(Furniture item) {
+            this.item = item;
+        }
+    }
+
+    private static class ItemChange extends Slot {
+        final Before before;
+        int kinds;
+
+        ItemChange(Furniture item, Before before) {
+            super(item);
+            this.before = before;
+        }
+    }
+
+    private final Map<Furniture, Slot> added = new IdentityHashMap<>();
+    private final Map<Furniture, Boolean> removed = new IdentityHashMap<>();
+    // Kept for items that changed and were then removed, which are no longer listed
+    private final Map<Furniture, ItemChange> changed = new IdentityHashMap<>();
+    private final List<Slot> addedSlots = new ArrayList<>();
+    private final List<Furniture> removedOrder = new ArrayList<>();
+    private final List<Slot> changedSlots = new ArrayList<>();
+    private int addedCount;
+    private int changedCount;
+    // Built from the slots when first asked for, null after an edit
+    private List<Furniture> addedItems;
+    private List<Furniture> changedItems;
+    private boolean roomChanged;
+
+    DesignChange() {
+    }
+
+    void itemAdded(Furniture item) {
+        forgetChange(item);
+        if (!added.containsKey(item)) {
+            Slot slot = new Slot(item);
+            added.put(item, slot);
+            addedSlots.add(slot);
+            addedCount++;
+            addedItems = null;
+        }
+    }
+
+    void itemRemoved(Furniture item) {
+        // Its earlier state stays available from getBefore()
+        ItemChange change = changed.get(item);
+        if (change != null) {
+            unlist(change);
+        }
+        Slot slot = added.remove(item);
+        if (slot != null) {
+            slot.live = false;
+            addedCount--;
+            addedItems = null;
+        } else if (removed.put(item, Boolean.TRUE) == null) {
+            removedOrder.add(item);
+        }
+    }
+
+    // Called before the item changes, so what is kept the first time is how it was
+    void itemChanging(Furniture item, int kinds) {
+        if (added.containsKey(item)) {
+            return;
+        }
+        ItemChange change = changed.get(item);
+        if (change == null) {
+            change = new ItemChange(item, new Before(item.getX(), item.getY(), item.getFootprint()));
+            changed.put(item, change);
+            changedSlots.add(change);
+            changedCount++;
+            changedItems = null;
+        }
+        change.kinds |= kinds;
+    }
+
+    private void forgetChange(Furniture item) {
+        ItemChange change = changed.remove(item);
+        if (change != null) {
+            unlist(change);
+        }
+    }
+
+    private void unlist(ItemChange change) {
+        if (change.live) {
+            change.live = false;
+            changedCount--;
+            changedItems = null;
+        }
+    }
+
+    // The live items in order, dropping the dead slots for good
+    private static List<Furniture> liveItems(List<Slot> slots, int count) {
+        List<Furniture> items = new ArrayList<>(count);
+        slots.removeIf(slot -> !slot.live);
+        for (Slot slot : slots) {
+            items.add(slot.item);
+        }
+        return items;
+    }
+
+    void roomChanged() {
+        roomChanged = true;
+    }
+
+    // Items added in this batch, in the order they were added. An item removed and put back,
+    // e.g. by undo, is reported as both removed and added.
+    public List<Furniture> getAdded() {
+        if (addedItems == null) {
+            addedItems = liveItems(addedSlots, addedCount);
+        }
+        return addedItems;
+    }
+
+    public List<Furniture> getRemoved() {
+        return removedOrder;
+    }
+
+    // Items that changed but were neither added nor removed in this batch
+    public List<Furniture> getChanged() {
+        if (changedItems == null) {
+            changedItems = liveItems(changedSlots, changedCount);
+        }
+        return changedItems;
+    }
+
+    // MOVED, RESIZED, RECOLORED and RETYPED bits; 0 if the item did not change
+    public int getKinds(Furniture item) {
+        ItemChange change = changed.get(item);
+        return change != null ? change.kinds : 0;
+    }
+
+    // The item's position and footprint before it first changed in this batch, or null. Also
+    // kept for items that changed and were then removed.
+    public Before getBefore(Furniture item) {
+        ItemChange change = changed.get(item);
+        return change != null ? change.before : null;
+    }
+
+    public boolean isRoomChanged() {
+        return roomChanged;
+    }
+
+    // True when items were added or removed, i.e. the list itself changed
+    public boolean isStructural() {
+        return addedCount > 0 || !removedOrder.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !isStructural() && changedCount == 0 && !roomChanged;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DesignChange: %d added, %d removed, %d changed%s", addedCount,
+                removedOrder.size(), changedCount, roomChanged ? ", room changed" : "");
+    }
+}
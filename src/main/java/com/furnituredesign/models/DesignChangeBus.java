@@ -0,0 +1,97 @@
+package com.furnituredesign.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+//DesignChangeBus
+// Tells views what changed in the design being edited. A FurnitureList, its store and a Room
+// attached to the bus report every edit as it happens; the bus collects them into one
+// DesignChange and delivers it once, through the executor it was given, however many edits
+// were made in the meantime. With an executor that runs tasks at the start of the next
+// pulse, a whole drag step, undo jump or multi-item removal reaches the listeners as a single
+// notification. flush() delivers early, for code that needs the views up to date now.
+// Only used from the FX thread.
+
+public class DesignChangeBus {
+
+    public interface Listener {
+        void designChanged(DesignChange change);
+    }
+
+    private final Executor executor;
+    private final List<Listener> listeners = new ArrayList<>();
+    private DesignChange pending;
+
+    private long edits;
+    private long notifications;
+
+    // Deliveries are scheduled through executor, e.g. RenderScheduler::runBeforeRender
+    public DesignChangeBus(Executor executor) {
+        this.executor = executor;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Delivers the changes collected so far right away, if there are any
+    public void flush() {
+        DesignChange change = pending;
+        pending = null;
+        if (change != null && !change.isEmpty()) {
+            notifications++;
+            for (Listener listener : new ArrayList<>(listeners)) {
+                listener.designChanged(change);
+            }
+        }
+    }
+
+    // Drops the changes collected so far, e.g. when the whole design is replaced
+    public void discard() {
+        pending = null;
+    }
+
+    public long getEdits() {
+        return edits;
+    }
+
+    public long getNotifications() {
+        return notifications;
+    }
+
+    void itemAdded(Furniture item) {
+        collect().itemAdded(item);
+    }
+
+    void itemRemoved(Furniture item) {
+        collect().itemRemoved(item);
+    }
+
+    void itemChanging(Furniture item, int kinds) {
+        collect().itemChanging(item, kinds);
+    }
+
+    void roomChanged() {
+        collect().roomChanged();
+    }
+
+    private DesignChange collect() {
+        edits++;
+        if (pending == null) {
+            DesignChange change = new DesignChange();
+            pending = change;
+            executor.execute(() -> {
+                // Already delivered by flush(), or dropped
+                if (pending == change) {
+                    flush();
+                }
+            });
+        }
+        return pending;
+    }
+}
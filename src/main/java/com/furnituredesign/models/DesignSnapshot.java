@@ -0,0 +1,68 @@
+package com.furnituredesign.models;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+//DesignSnapshot
+// An unchanging copy of a design, taken in O(1) from the FurnitureList being edited. It
+// shares the list's current PersistentVector and a read-only snapshot of its store, so it
+// costs nothing until the design is next edited, and then only the pages that change are
+// copied. Saving, the 3D scene build and undo read snapshots on other threads without
+// locking while the FX thread goes on editing.
+
+public final class DesignSnapshot {
+    private final Room room;
+    private final PersistentVector<Furniture> items;
+    private final FurnitureStore store;
+
+    private DesignSnapshot(Room room, PersistentVector<Furniture> items, FurnitureStore store) {
+        this.room = room;
+        this.items = items;
+        this.store = store;
+    }
+
+    // Takes the snapshot; must be called on the thread editing the list
+    public static DesignSnapshot of(Room room, FurnitureList furniture) {
+        return new DesignSnapshot(room != null ? new Room(room) : null, furniture.version(),
+                furniture.getStore().snapshot());
+    }
+
+    // May be null when no room has been created; not to be changed
+    public Room getRoom() {
+        return room;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    // The items as they were when the snapshot was taken, as a new read-only view on each
+    // get(); their setters throw
+    public List<Furniture> getFurniture() {
+        return new Items();
+    }
+
+    // The live items the snapshot was taken from, in the same order, e.g. to match what
+    // was built from the snapshot back to them. Their values may have changed since.
+    public List<Furniture> getItems() {
+        return items;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Snapshot: %s with %d furniture items", room, items.size());
+    }
+
+    private class Items extends AbstractList<Furniture> implements RandomAccess {
+        @Override
+        public Furniture get(int index) {
+            return new Furniture(store, items.get(index).getHandle());
+        }
+
+        @Override
+        public int size() {
+            return items.size();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.furnituredesign.models;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+public class DesignSummary {
+    private final long id;
+    private final String name;
+    private final Room room;
+    private final int furnitureCount;
+    private final long updatedAt;
+    private final File file;
+    private final Map<String, Integer> typeCounts;
+
+    public DesignSummary(long id, String name, Room room, int furnitureCount, long updatedAt) {
+        this(id, name, room, furnitureCount, updatedAt, null, Collections.emptyMap());
+    }
+
+    // Summary of a design file; id is -1 as it is not stored in the repository
+    public DesignSummary(File file, Room room, int furnitureCount, long updatedAt, Map<String, Integer> typeCounts) {
+        this(-1, file.getName(), room, furnitureCount, updatedAt, file, typeCounts);
+    }
+
+    private DesignSummary(long id, String name, Room room, int furnitureCount, long updatedAt,
+                          File file, Map<String, Integer> typeCounts) {
+        this.id = id;
+        this.name = name;
+        this.room = room;
+        this.furnitureCount = furnitureCount;
+        this.updatedAt = updatedAt;
+        this.file = file;
+        this.typeCounts = Collections.unmodifiableMap(typeCounts);
+    }
+
+    // Getters
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Room getRoom() {
+        return room;
+    }
+
+    public int getFurnitureCount() {
+        return furnitureCount;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // Number of items of each furniture type
+    public Map<String, Integer> getTypeCounts() {
+        return typeCounts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s - %s, %d items", name, room, furnitureCount);
+    }
+}
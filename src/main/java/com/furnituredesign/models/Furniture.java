@@ -1,128 +1,147 @@
 package com.furnituredesign.models;
 
+// One item of furniture: a view of its row in a FurnitureStore. Items from the same store
+// share its columns; the constructors here give an item a store of its own. Setters report
+// the change to the store's DesignChangeBus, if it has one, before making it.
+
 public class Furniture {
-    private String type;
-    private double x;
-    private double y;
-    private double z;
-    private double width;
-    private double length;
-    private double height;
-    private String color;
+    private final FurnitureStore store;
+    private final int handle;
 
     public Furniture(String type) {
-        this.type = type;
-        this.x = 0;
-        this.y = 0;
-        this.z = 0;
-        this.color = "#808080";
-
-        // Set default dimension based on furniture type
-        switch (type.toLowerCase()) {
-            case "chair":
-                this.width = 0.5;
-                this.length = 0.5;
-                this.height = 1.0;
-                break;
-            case "table":
-                this.width = 1.2;
-                this.length = 0.8;
-                this.height = 0.75;
-                break;
-            case "sofa":
-                this.width = 2.0;
-                this.length = 0.8;
-                this.height = 0.9;
-                break;
-            case "bed":
-                this.width = 2.0;
-                this.length = 1.6;
-                this.height = 0.5;
-                break;
-            case "cabinet":
-                this.width = 1.0;
-                this.length = 0.6;
-                this.height = 1.8;
-                break;
-            case "bookshelf":
-                this.width = 1.0;
-                this.length = 0.4;
-                this.height = 2.0;
-                break;
-            default:
-                this.width = 1.0;
-                this.length = 1.0;
-                this.height = 1.0;
-        }
+        this(new FurnitureStore(1), type);
+    }
+
+    public Furniture(Furniture other) {
+        this(new FurnitureStore(1), other);
+    }
+
+    private Furniture(FurnitureStore store, String type) {
+        this(store, store.addRow(type));
+    }
+
+    private Furniture(FurnitureStore store, Furniture other) {
+        this(store, store.copyRow(other));
+    }
+
+    Furniture(FurnitureStore store, int handle) {
+        this.store = store;
+        this.handle = handle;
+    }
+
+    public FurnitureStore getStore() {
+        return store;
+    }
+
+    // Row of this item in its store
+    public int getHandle() {
+        return handle;
     }
 
     // Getters and setter
     public String getType() {
-        return type;
+        return store.getType(handle);
     }
 
     public void setType(String type) {
-        this.type = type;
+        store.changing(this, DesignChange.RETYPED);
+        store.setType(handle, type);
+    }
+
+    // Id of the type's FurnitureCatalog entry
+    public int getTypeId() {
+        return store.getTypeId(handle);
+    }
+
+    public FurnitureCatalog.Entry getCatalogEntry() {
+        return FurnitureCatalog.getDefault().get(store.getTypeId(handle));
+    }
+
+    // Shape and size on the 2D plan, from the catalog entry
+    public FurnitureFootprint getFootprint() {
+        return getCatalogEntry().getFootprint();
     }
 
     public double getX() {
-        return x;
+        return store.getX(handle);
     }
 
     public void setX(double x) {
-        this.x = x;
+        store.changing(this, DesignChange.MOVED);
+        store.setX(handle, x);
     }
 
     public double getY() {
-        return y;
+        return store.getY(handle);
     }
 
     public void setY(double y) {
-        this.y = y;
+        store.changing(this, DesignChange.MOVED);
+        store.setY(handle, y);
     }
 
     public double getZ() {
-        return z;
+        return store.getZ(handle);
     }
 
     public void setZ(double z) {
-        this.z = z;
+        store.changing(this, DesignChange.MOVED);
+        store.setZ(handle, z);
     }
 
     public double getWidth() {
-        return width;
+        return store.getWidth(handle);
     }
 
     public void setWidth(double width) {
-        this.width = width;
+        store.changing(this, DesignChange.RESIZED);
+        store.setWidth(handle, width);
     }
 
     public double getLength() {
-        return length;
+        return store.getLength(handle);
     }
 
     public void setLength(double length) {
-        this.length = length;
+        store.changing(this, DesignChange.RESIZED);
+        store.setLength(handle, length);
     }
 
     public double getHeight() {
-        return height;
+        return store.getHeight(handle);
     }
 
     public void setHeight(double height) {
-        this.height = height;
+        store.changing(this, DesignChange.RESIZED);
+        store.setHeight(handle, height);
     }
 
     public String getColor() {
-        return color;
+        return store.getColor(handle);
+    }
+
+    // The color as packed ARGB; only meaningful when hasColor() is true
+    public int getArgb() {
+        return store.getArgb(handle);
+    }
+
+    // False when the color is missing or was not a valid color
+    public boolean hasColor() {
+        return store.hasColor(handle);
     }
 
     public void setColor(String color) {
-        this.color = color;
+        store.changing(this, DesignChange.RECOLORED);
+        store.setColor(handle, color);
+    }
+
+    public void setArgb(int argb) {
+        store.changing(this, DesignChange.RECOLORED);
+        store.setArgb(handle, argb);
     }
 
     @Override
     public String toString() {
-        return String.format("%s (%.2fm x %.2fm x %.2fm)", type, width, length, height);
+        return String.format("%s (%.2fm x %.2fm x %.2fm)", getType(), getWidth(), getLength(), getHeight());
     }
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package com.furnituredesign.models;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//FurnitureCatalog
+// The furniture types that can be placed, read once from catalog/furniture.json. Each entry
+// has the default size of new items, the 2D footprint they are drawn with and the 3D model
+// they are built from. Items refer to their entry by id, so renderers find an item's shape
+// with an array lookup instead of comparing type names. Types not in the catalog all share
+// the UNKNOWN entry. Immutable once loaded and safe to share between threads.
+
+public class FurnitureCatalog {
+    public static final String RESOURCE = "/catalog/furniture.json";
+    public static final int UNKNOWN_ID = 0;
+
+    public static class Entry {
+        private final int id;
+        private final String name;
+        private final double width, length, height;
+        private final FurnitureFootprint footprint;
+        private final FurnitureFootprint model;
+
+        Entry(int id, String name, double width, double length, double height, FurnitureFootprint footprint,
+              FurnitureFootprint model) {
+            this.id = id;
+            this.name = name;
+            this.width = width;
+            this.length = length;
+            this.height = height;
+            this.footprint = footprint;
+            this.model = model;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Default size of new items, in metres
+        public double getWidth() {
+            return width;
+        }
+
+        public double getLength() {
+            return length;
+        }
+
+        public double getHeight() {
+            return height;
+        }
+
+        // Shape and size on the 2D plan
+        public FurnitureFootprint getFootprint() {
+            return footprint;
+        }
+
+        // Which 3D model the item is built from
+        public FurnitureFootprint getModel() {
+            return model;
+        }
+
+        public boolean isKnown() {
+            return id != UNKNOWN_ID;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static class DefaultHolder {
+        static final FurnitureCatalog INSTANCE = loadResource();
+    }
+
+    private final Entry[] entries;
+    private final List<Entry> listed;
+    // Keyed by lower-cased name
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private FurnitureCatalog(List<Entry> listed) {
+        entries = new Entry[listed.size() + 1];
+        entries[UNKNOWN_ID] = new Entry(UNKNOWN_ID, null, 1.0, 1.0, 1.0, FurnitureFootprint.DEFAULT,
+                FurnitureFootprint.DEFAULT);
+        this.listed = Collections.unmodifiableList(new ArrayList<>(listed));
+        for (Entry entry : listed) {
+            entries[entry.id] = entry;
+            ids.putIfAbsent(entry.name.toLowerCase(Locale.ROOT), entry.id);
+        }
+    }
+
+    public static FurnitureCatalog getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    // Id of the entry for a type name, ignoring case, or UNKNOWN_ID
+    public int idOf(String type) {
+        if (type == null) {
+            return UNKNOWN_ID;
+        }
+        Integer id = ids.get(type.toLowerCase(Locale.ROOT));
+        return id != null ? id : UNKNOWN_ID;
+    }
+
+    public Entry get(int id) {
+        return entries[id];
+    }
+
+    public Entry get(String type) {
+        return entries[idOf(type)];
+    }
+
+    // Every entry except UNKNOWN, in file order
+    public List<Entry> getEntries() {
+        return listed;
+    }
+
+    public int size() {
+        return listed.size();
+    }
+
+    public static FurnitureCatalog load(InputStream in) throws IOException {
+        List<Entry> listed = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("furniture") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        listed.add(readEntry(reader, listed.size() + 1));
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return new FurnitureCatalog(listed);
+    }
+
+    private static FurnitureCatalog loadResource() {
+        InputStream in = FurnitureCatalog.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("Furniture catalog not found: " + RESOURCE);
+        }
+        try {
+            return load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read furniture catalog " + RESOURCE, e);
+        }
+    }
+
+    private static Entry readEntry(JsonReader reader, int id) throws IOException {
+        String name = null, footprint = null, model = null;
+        double width = 1.0, length = 1.0, height = 1.0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = reader.nextString();
+                case "width" -> width = reader.nextDouble();
+                case "length" -> length = reader.nextDouble();
+                case "height" -> height = reader.nextDouble();
+                case "footprint" -> footprint = reader.nextString();
+                case "model" -> model = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (name == null) {
+            throw new IOException("Catalog entry " + id + " has no name");
+        }
+        FurnitureFootprint shape = footprint(footprint);
+        return new Entry(id, name, width, length, height, shape, model != null ? footprint(model) : shape);
+    }
+
+    private static FurnitureFootprint footprint(String name) throws IOException {
+        if (name == null) {
+            return FurnitureFootprint.DEFAULT;
+        }
+        try {
+            return FurnitureFootprint.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown footprint in catalog: " + name);
+        }
+    }
+}
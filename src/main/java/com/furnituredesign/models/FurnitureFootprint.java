@@ -0,0 +1,44 @@
+package com.furnituredesign.models;
+
+// Shape and size of each kind of furniture on the 2D floor plan, in plan pixels, also naming
+// the 3D model it is built from. Catalog entries pick one for each furniture type.
+// Furniture x/y are the top-left corner of this footprint.
+
+public enum FurnitureFootprint {
+    CHAIR(30, 30, Shape.OVAL),
+    TABLE(50, 30, Shape.RECT),
+    SOFA(60, 30, Shape.ROUND_RECT),
+    BED(70, 40, Shape.RECT),
+    CABINET(30, 50, Shape.RECT),
+    BOOKSHELF(15, 75, Shape.RECT),
+    DEFAULT(40, 40, Shape.RECT);
+
+    // Plan pixels per metre, shared by the 2D plan and the 3D scene
+    public static final double PIXELS_PER_METER = 100;
+
+    public enum Shape {
+        RECT, ROUND_RECT, OVAL
+    }
+
+    private final double width;
+    private final double length;
+    private final Shape shape;
+
+    FurnitureFootprint(double width, double length, Shape shape) {
+        this.width = width;
+        this.length = length;
+        this.shape = shape;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getLength() {
+        return length;
+    }
+
+    public Shape getShape() {
+        return shape;
+    }
+}
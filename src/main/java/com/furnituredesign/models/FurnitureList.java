@@ -0,0 +1,181 @@
+package com.furnituredesign.models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+//FurnitureList
+// The items of the design being edited, in order. Behaves like any mutable list, but each
+// change only produces a new version of a PersistentVector, and every item lives in the
+// list's own FurnitureStore. Together they let DesignSnapshot.of() capture the whole design
+// in O(1) while editing carries on. Items from another store are rejected rather than
+// copied, since the copy would not be the object the caller holds. Once attached to a
+// DesignChangeBus, items added, removed and edited are reported to it. The store reuses the
+// rows of removed items once nothing refers to them any more.
+
+public class FurnitureList extends AbstractList<Furniture> implements RandomAccess {
+    private FurnitureStore store;
+    private PersistentVector<Furniture> items = PersistentVector.empty();
+    private DesignChangeBus changeBus;
+
+    public FurnitureList() {
+        store = new FurnitureStore();
+        store.reuseRows(items);
+    }
+
+    // Takes the items over when they share one writable store, as loaded designs do;
+    // otherwise the list gets copies of them in a new store
+    public FurnitureList(List<Furniture> furniture) {
+        store = sharedStore(furniture);
+        if (store != null) {
+            items = PersistentVector.of(furniture);
+        } else {
+            store = new FurnitureStore(furniture.size());
+            items = PersistentVector.of(FurnitureStore.copyOf(furniture));
+        }
+        store.reuseRows(items);
+    }
+
+    // A new item with the default size and color of its catalog entry, added at the end
+    public Furniture create(String type) {
+        Furniture item = store.add(type);
+        add(item);
+        return item;
+    }
+
+    public FurnitureStore getStore() {
+        return store;
+    }
+
+    // Null detaches the list
+    public void setChangeBus(DesignChangeBus changeBus) {
+        this.changeBus = changeBus;
+        store.setChangeBus(changeBus);
+    }
+
+    // The current version; never changes once returned
+    PersistentVector<Furniture> version() {
+        return items;
+    }
+
+    @Override
+    public Furniture get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public Furniture set(int index, Furniture item) {
+        checkStore(item);
+        Furniture replaced = items.get(index);
+        items = items.with(index, item);
+        if (changeBus != null) {
+            changeBus.itemRemoved(replaced);
+            changeBus.itemAdded(item);
+        }
+        return replaced;
+    }
+
+    @Override
+    public void add(int index, Furniture item) {
+        checkStore(item);
+        items = items.insert(index, item);
+        modCount++;
+        if (changeBus != null) {
+            changeBus.itemAdded(item);
+        }
+    }
+
+    @Override
+    public Furniture remove(int index) {
+        Furniture removed = items.get(index);
+        items = items.without(index);
+        modCount++;
+        if (changeBus != null) {
+            changeBus.itemRemoved(removed);
+        }
+        return removed;
+    }
+
+    // Positions of the given items in one pass, ascending; items not in the list are skipped
+    public int[] indexesOf(Collection<Furniture> wanted) {
+        Set<Furniture> remaining = Collections.newSetFromMap(new IdentityHashMap<>());
+        remaining.addAll(wanted);
+        int[] indexes = new int[remaining.size()];
+        int count = 0;
+        int index = 0;
+        for (Furniture item : items) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            if (remaining.remove(item)) {
+                indexes[count++] = index;
+            }
+            index++;
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    // Removes the items at the given ascending positions with a single rebuild of the vector;
+    // returns them in the same order
+    public Furniture[] removeAt(int[] indexes) {
+        Furniture[] removed = new Furniture[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            removed[i] = items.get(indexes[i]);
+        }
+        items = items.withoutAll(indexes);
+        modCount++;
+        if (changeBus != null) {
+            for (Furniture item : removed) {
+                changeBus.itemRemoved(item);
+            }
+        }
+        return removed;
+    }
+
+    // Also starts a new store, since none of the old rows are needed any more
+    @Override
+    public void clear() {
+        if (changeBus != null) {
+            for (Furniture item : items) {
+                changeBus.itemRemoved(item);
+            }
+            store.setChangeBus(null);
+        }
+        items = PersistentVector.empty();
+        store = new FurnitureStore();
+        store.reuseRows(items);
+        store.setChangeBus(changeBus);
+        modCount++;
+    }
+
+    private void checkStore(Furniture item) {
+        if (item.getStore() != store) {
+            throw new IllegalArgumentException("Furniture belongs to another list's store");
+        }
+    }
+
+    private static FurnitureStore sharedStore(List<Furniture> furniture) {
+        FurnitureStore shared = null;
+        for (Furniture item : furniture) {
+            if (shared == null) {
+                shared = item.getStore();
+            } else if (item.getStore() != shared) {
+                return null;
+            }
+        }
+        if (shared == null) {
+            return new FurnitureStore();
+        }
+        return shared.isReadOnly() ? null : shared;
+    }
+}
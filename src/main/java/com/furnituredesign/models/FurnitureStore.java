@@ -0,0 +1,468 @@
+package com.furnituredesign.models;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//FurnitureStore
+// Furniture data kept column by column: one primitive array per field, indexed by a row
+// handle that never changes once the row is created. Furniture objects are thin views of a
+// row, so a large design costs a few arrays instead of a full object and two strings per
+// item, and loops over a design's items walk memory in order. Type strings are stored once
+// per store and referenced by id, each resolved once to its FurnitureCatalog entry. Colors
+// are packed ARGB; only the rare missing or invalid ones keep their text, on the side.
+// A store lives as long as any view of its rows. Rows are only freed in the store of a
+// FurnitureList, where items are removed over a long session: once the one Furniture view
+// of a row has been collected, no list, undo edit or snapshot can reach it any more and the
+// row is handed out again by the next add. Snapshots keep their own copy of the page.
+//
+// The columns are cut into pages of 32 rows held in a PersistentVector. snapshot() hands
+// out a read-only store sharing every page; the first write to a shared page afterwards
+// copies that page and its path in the vector, so snapshots are O(1) and the pages they
+// hold never change. Snapshots can be read from any thread once handed over.
+// Not thread-safe otherwise: a store is used by one thread at a time, like the lists holding it.
+
+public class FurnitureStore {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int PAGE_BITS = 5;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int NO_STRING = -1;
+    private static final int DEFAULT_COLOR = 0xFF808080;
+
+    private static final class Page {
+        // The store that may write this page in place; any other store copies it first
+        final Object owner;
+        final double[] x, y, z;
+        final double[] width, length, height;
+        final int[] type;
+        final int[] entry;
+        final int[] color;
+
+        Page(Object owner, int capacity) {
+            this.owner = owner;
+            x = new double[capacity];
+            y = new double[capacity];
+            z = new double[capacity];
+            width = new double[capacity];
+            length = new double[capacity];
+            height = new double[capacity];
+            type = new int[capacity];
+            entry = new int[capacity];
+            color = new int[capacity];
+        }
+
+        Page(Object owner, Page other, int capacity) {
+            this.owner = owner;
+            x = Arrays.copyOf(other.x, capacity);
+            y = Arrays.copyOf(other.y, capacity);
+            z = Arrays.copyOf(other.z, capacity);
+            width = Arrays.copyOf(other.width, capacity);
+            length = Arrays.copyOf(other.length, capacity);
+            height = Arrays.copyOf(other.height, capacity);
+            type = Arrays.copyOf(other.type, capacity);
+            entry = Arrays.copyOf(other.entry, capacity);
+            color = Arrays.copyOf(other.color, capacity);
+        }
+
+        int capacity() {
+            return x.length;
+        }
+    }
+
+    private final int firstPageCapacity;
+    private PersistentVector<Page> pages = PersistentVector.empty();
+    private int size;
+    // Pages carrying this token were created since the last snapshot and are written in
+    // place; it is replaced by every snapshot. Null in a snapshot, which is read-only.
+    private Object owner = new Object();
+
+    private final StringTable types;
+    // Text of the colors that are missing (null) or could not be parsed, by handle.
+    // Shared with the snapshots until the next change to it.
+    private Map<Integer, String> unparsedColors = new HashMap<>();
+    private boolean unparsedShared;
+    // Told about edits made through views of this store's rows; never set on a snapshot
+    private DesignChangeBus changeBus;
+
+    // Set by reuseRows(). The reference to each tracked row's view, by row, and the rows
+    // whose view has been collected.
+    private ReferenceQueue<Furniture> released;
+    private RowReference[] references;
+    private int[] freeRows;
+    private int freeCount;
+
+    private static final class RowReference extends PhantomReference<Furniture> {
+        final int row;
+
+        RowReference(Furniture view, int row, ReferenceQueue<Furniture> queue) {
+            super(view, queue);
+            this.row = row;
+        }
+    }
+
+    // Interned strings referenced by id, with the catalog entry id of each; null has no id.
+    // Ids are only ever appended, so a snapshot shares the arrays and reads the ids it had.
+    private static class StringTable {
+        String[] values;
+        int[] entries;
+        int count;
+        // Only kept by the writable store
+        final Map<String, Integer> ids;
+
+        StringTable() {
+            values = new String[8];
+            entries = new int[8];
+            ids = new HashMap<>();
+        }
+
+        private StringTable(StringTable other) {
+            values = other.values;
+            entries = other.entries;
+            count = other.count;
+            ids = null;
+        }
+
+        int id(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                    entries = Arrays.copyOf(entries, count * 2);
+                }
+                id = count;
+                values[id] = value;
+                entries[id] = FurnitureCatalog.getDefault().idOf(value);
+                ids.put(value, id);
+                count++;
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return id == NO_STRING ? null : values[id];
+        }
+
+        int entry(int id) {
+            return id == NO_STRING ? FurnitureCatalog.UNKNOWN_ID : entries[id];
+        }
+
+        StringTable snapshot() {
+            return new StringTable(this);
+        }
+    }
+
+    public FurnitureStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    // Capacity is the number of rows the first page starts with, up to a full page
+    public FurnitureStore(int capacity) {
+        firstPageCapacity = Math.max(1, Math.min(capacity, PAGE_SIZE));
+        types = new StringTable();
+    }
+
+    private FurnitureStore(FurnitureStore source) {
+        firstPageCapacity = source.firstPageCapacity;
+        pages = source.pages;
+        size = source.size;
+        owner = null;
+        types = source.types.snapshot();
+        unparsedColors = source.unparsedColors;
+    }
+
+    // A read-only copy of the store as it is now, sharing all of its pages. Views of its
+    // rows throw UnsupportedOperationException from their setters.
+    public FurnitureStore snapshot() {
+        if (isReadOnly()) {
+            return this;
+        }
+        owner = new Object();
+        unparsedShared = true;
+        return new FurnitureStore(this);
+    }
+
+    public boolean isReadOnly() {
+        return owner == null;
+    }
+
+    // Frees rows once their view is unreachable, for a list's store. Rows are tracked through
+    // their single view: the given items and every item added from now on. Rows of views not
+    // given here are never reused.
+    void reuseRows(Iterable<Furniture> views) {
+        if (isReadOnly()) {
+            throw new UnsupportedOperationException("Furniture snapshots are read-only");
+        }
+        if (released == null) {
+            released = new ReferenceQueue<>();
+            references = new RowReference[Math.max(INITIAL_CAPACITY, size)];
+            freeRows = new int[INITIAL_CAPACITY];
+        }
+        for (Furniture view : views) {
+            if (view.getStore() == this) {
+                track(view);
+            }
+        }
+    }
+
+    private Furniture track(Furniture view) {
+        if (released != null) {
+            int row = view.getHandle();
+            if (row >= references.length) {
+                references = Arrays.copyOf(references, Math.max(row + 1, references.length * 2));
+            }
+            // A second list over the same store gives the same views again
+            if (references[row] == null) {
+                references[row] = new RowReference(view, row, released);
+            }
+        }
+        return view;
+    }
+
+    void setChangeBus(DesignChangeBus changeBus) {
+        this.changeBus = changeBus;
+    }
+
+    void changing(Furniture item, int kinds) {
+        if (changeBus != null) {
+            changeBus.itemChanging(item, kinds);
+        }
+    }
+
+    // Copies of the items, all in one new store sized to fit them
+    public static List<Furniture> copyOf(List<Furniture> furniture) {
+        FurnitureStore store = new FurnitureStore(furniture.size());
+        List<Furniture> copies = new ArrayList<>(furniture.size());
+        for (Furniture item : furniture) {
+            copies.add(store.copy(item));
+        }
+        return copies;
+    }
+
+    // New item with the default size and color of its catalog entry
+    public Furniture add(String type) {
+        return track(new Furniture(this, addRow(type)));
+    }
+
+    // New item with the same values as one from any store
+    public Furniture copy(Furniture other) {
+        return track(new Furniture(this, copyRow(other)));
+    }
+
+    int addRow(String type) {
+        int row = newRow();
+        Page page = writable(row);
+        int i = row & PAGE_MASK;
+        page.type[i] = types.id(type);
+        page.entry[i] = types.entry(page.type[i]);
+        page.color[i] = DEFAULT_COLOR;
+        FurnitureCatalog.Entry defaults = FurnitureCatalog.getDefault().get(page.entry[i]);
+        page.width[i] = defaults.getWidth();
+        page.length[i] = defaults.getLength();
+        page.height[i] = defaults.getHeight();
+        return row;
+    }
+
+    int copyRow(Furniture other) {
+        FurnitureStore source = other.getStore();
+        int from = other.getHandle();
+        Page in = source.page(from);
+        int f = from & PAGE_MASK;
+        int row = newRow();
+        Page page = writable(row);
+        int i = row & PAGE_MASK;
+        page.x[i] = in.x[f];
+        page.y[i] = in.y[f];
+        page.z[i] = in.z[f];
+        page.width[i] = in.width[f];
+        page.length[i] = in.length[f];
+        page.height[i] = in.height[f];
+        page.color[i] = in.color[f];
+        page.entry[i] = in.entry[f];
+        page.type[i] = source == this ? in.type[f] : types.id(source.types.get(in.type[f]));
+        if (!source.hasColor(from)) {
+            unparsedColors(true).put(row, source.getColor(from));
+        }
+        return row;
+    }
+
+    // Number of rows created; handles run from 0 to size() - 1, freed rows included
+    public int size() {
+        return size;
+    }
+
+    public String getType(int handle) {
+        return types.get(page(handle).type[handle & PAGE_MASK]);
+    }
+
+    // Id of the type's FurnitureCatalog entry
+    public int getTypeId(int handle) {
+        return page(handle).entry[handle & PAGE_MASK];
+    }
+
+    public void setType(int handle, String value) {
+        Page page = writable(handle);
+        int i = handle & PAGE_MASK;
+        page.type[i] = types.id(value);
+        page.entry[i] = types.entry(page.type[i]);
+    }
+
+    public double getX(int handle) {
+        return page(handle).x[handle & PAGE_MASK];
+    }
+
+    public void setX(int handle, double value) {
+        writable(handle).x[handle & PAGE_MASK] = value;
+    }
+
+    public double getY(int handle) {
+        return page(handle).y[handle & PAGE_MASK];
+    }
+
+    public void setY(int handle, double value) {
+        writable(handle).y[handle & PAGE_MASK] = value;
+    }
+
+    public double getZ(int handle) {
+        return page(handle).z[handle & PAGE_MASK];
+    }
+
+    public void setZ(int handle, double value) {
+        writable(handle).z[handle & PAGE_MASK] = value;
+    }
+
+    public double getWidth(int handle) {
+        return page(handle).width[handle & PAGE_MASK];
+    }
+
+    public void setWidth(int handle, double value) {
+        writable(handle).width[handle & PAGE_MASK] = value;
+    }
+
+    public double getLength(int handle) {
+        return page(handle).length[handle & PAGE_MASK];
+    }
+
+    public void setLength(int handle, double value) {
+        writable(handle).length[handle & PAGE_MASK] = value;
+    }
+
+    public double getHeight(int handle) {
+        return page(handle).height[handle & PAGE_MASK];
+    }
+
+    public void setHeight(int handle, double value) {
+        writable(handle).height[handle & PAGE_MASK] = value;
+    }
+
+    // The color as hex, or its text as given when it is missing or not a color
+    public String getColor(int handle) {
+        return hasColor(handle) ? PackedColor.format(getArgb(handle)) : unparsedColors.get(handle);
+    }
+
+    // The color as packed ARGB; only meaningful when hasColor() is true
+    public int getArgb(int handle) {
+        return page(handle).color[handle & PAGE_MASK];
+    }
+
+    public boolean hasColor(int handle) {
+        return unparsedColors.isEmpty() || !unparsedColors.containsKey(handle);
+    }
+
+    public void setColor(int handle, String value) {
+        long parsed = PackedColor.parse(value);
+        if (parsed == PackedColor.NONE) {
+            writable(handle).color[handle & PAGE_MASK] = 0;
+            unparsedColors(true).put(handle, value);
+        } else {
+            setArgb(handle, (int) parsed);
+        }
+    }
+
+    public void setArgb(int handle, int argb) {
+        writable(handle).color[handle & PAGE_MASK] = argb;
+        if (!unparsedColors.isEmpty() && unparsedColors.containsKey(handle)) {
+            unparsedColors(true).remove(handle);
+        }
+    }
+
+    private Page page(int handle) {
+        return pages.get(handle >>> PAGE_BITS);
+    }
+
+    // The page holding the row, copied first if a snapshot shares it
+    private Page writable(int handle) {
+        if (isReadOnly()) {
+            throw new UnsupportedOperationException("Furniture snapshots are read-only");
+        }
+        int index = handle >>> PAGE_BITS;
+        Page page = pages.get(index);
+        if (page.owner != owner) {
+            page = new Page(owner, page, page.capacity());
+            pages = pages.with(index, page);
+        }
+        return page;
+    }
+
+    private Map<Integer, String> unparsedColors(boolean writing) {
+        if (writing && unparsedShared) {
+            unparsedColors = new HashMap<>(unparsedColors);
+            unparsedShared = false;
+        }
+        return unparsedColors;
+    }
+
+    private int newRow() {
+        if (isReadOnly()) {
+            throw new UnsupportedOperationException("Furniture snapshots are read-only");
+        }
+        if (released != null) {
+            int row = reusableRow();
+            if (row >= 0) {
+                return row;
+            }
+        }
+        int offset = size & PAGE_MASK;
+        if (offset == 0) {
+            pages = pages.append(new Page(owner, size == 0 ? firstPageCapacity : PAGE_SIZE));
+        } else {
+            int index = size >>> PAGE_BITS;
+            Page page = pages.get(index);
+            if (offset == page.capacity()) {
+                pages = pages.with(index, new Page(owner, page, Math.min(offset * 2, PAGE_SIZE)));
+            }
+        }
+        return size++;
+    }
+
+    // A freed row with its position and color cleared, or -1
+    private int reusableRow() {
+        for (RowReference reference; (reference = (RowReference) released.poll()) != null; ) {
+            references[reference.row] = null;
+            if (freeCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+            }
+            freeRows[freeCount++] = reference.row;
+        }
+        if (freeCount == 0) {
+            return -1;
+        }
+        int row = freeRows[--freeCount];
+        Page page = writable(row);
+        int i = row & PAGE_MASK;
+        page.x[i] = 0;
+        page.y[i] = 0;
+        page.z[i] = 0;
+        if (!hasColor(row)) {
+            unparsedColors(true).remove(row);
+        }
+        return row;
+    }
+}
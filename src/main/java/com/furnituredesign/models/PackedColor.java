@@ -0,0 +1,74 @@
+package com.furnituredesign.models;
+
+import java.util.HexFormat;
+import javafx.scene.paint.Color;
+
+//PackedColor
+// Colors as packed 0xAARRGGBB ints, parsed once when a model is loaded or edited so
+// renderers never parse strings. Hex strings (#rgb, #rrggbb, #rrggbbaa and the 0xrrggbbaa
+// written by JavaFX) are parsed directly; anything else goes through Color.web. Values that
+// are not colors parse to NONE, and the models keep their text so it is saved unchanged.
+
+public final class PackedColor {
+    // Parse result for a missing or invalid color; never a packed color itself
+    public static final long NONE = -1;
+
+    private PackedColor() {
+    }
+
+    // The packed color in the low 32 bits, or NONE
+    public static long parse(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        String hex = null;
+        if (value.startsWith("#")) {
+            hex = value.substring(1);
+        } else if (value.startsWith("0x") || value.startsWith("0X")) {
+            hex = value.substring(2);
+        }
+        if (hex != null && (hex.length() == 6 || hex.length() == 8) && isHex(hex)) {
+            long rgba = HexFormat.fromHexDigitsToLong(hex);
+            if (hex.length() == 6) {
+                return 0xFF000000L | rgba;
+            }
+            return (rgba >>> 8) | (rgba & 0xFF) << 24;
+        }
+        try {
+            return pack(Color.web(value)) & 0xFFFFFFFFL;
+        } catch (IllegalArgumentException e) {
+            return NONE;
+        }
+    }
+
+    public static int pack(Color color) {
+        return (int) Math.round(color.getOpacity() * 255) << 24
+                | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8
+                | (int) Math.round(color.getBlue() * 255);
+    }
+
+    // #rrggbb, or #rrggbbaa when not opaque
+    public static String format(int argb) {
+        boolean opaque = argb >>> 24 == 0xFF;
+        char[] text = new char[opaque ? 7 : 9];
+        text[0] = '#';
+        for (int i = 0; i < 6; i++) {
+            text[1 + i] = Character.forDigit(argb >>> (20 - 4 * i) & 0xF, 16);
+        }
+        if (!opaque) {
+            text[7] = Character.forDigit(argb >>> 28, 16);
+            text[8] = Character.forDigit(argb >>> 24 & 0xF, 16);
+        }
+        return new String(text);
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
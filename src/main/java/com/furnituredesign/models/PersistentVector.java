@@ -0,0 +1,262 @@
+package com.furnituredesign.models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+//PersistentVector
+// Immutable list stored as a 32-way tree of arrays with a separate tail array. with() and
+// append() return a new vector that shares all but the changed path with this one, so a
+// version costs O(log32 n) to make and nothing to keep. Versions can be read from any thread
+// once handed over. Removing or inserting anywhere but the tail rebuilds the vector, O(n),
+// so removing many elements at once goes through withoutAll(), which rebuilds it only once.
+// The List mutators inherited from AbstractList throw UnsupportedOperationException.
+
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, new Object[WIDTH], new Object[0]);
+
+    private final int size;
+    // Bits to shift an index by to find its slot in the root
+    private final int shift;
+    // Inner nodes and leaves are Object[WIDTH]; leaves hold the elements
+    private final Object[] root;
+    // The last 1 to 32 elements, kept out of the tree so appends rarely touch it
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    // Builds the tree bottom-up in one pass instead of appending element by element
+    public static <E> PersistentVector<E> of(Collection<? extends E> elements) {
+        if (elements instanceof PersistentVector<?>) {
+            @SuppressWarnings("unchecked")
+            PersistentVector<E> vector = (PersistentVector<E>) elements;
+            return vector;
+        }
+        return build(elements.toArray(), elements.size());
+    }
+
+    private static <E> PersistentVector<E> build(Object[] values, int count) {
+        if (count == 0) {
+            return empty();
+        }
+        int tailOffset = tailOffset(count);
+        Object[] tail = Arrays.copyOfRange(values, tailOffset, count);
+        Object[][] nodes = new Object[tailOffset >>> BITS][];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = Arrays.copyOfRange(values, i << BITS, (i + 1) << BITS);
+        }
+        int shift = BITS;
+        while (nodes.length > WIDTH) {
+            Object[][] parents = new Object[(nodes.length + MASK) >>> BITS][];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = Arrays.copyOfRange(nodes, i << BITS, (i + 1) << BITS, Object[].class);
+            }
+            nodes = parents;
+            shift += BITS;
+        }
+        return new PersistentVector<>(count, shift, Arrays.copyOf(nodes, WIDTH, Object[].class), tail);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    // A vector with the element at index replaced
+    public PersistentVector<E> with(int index, E element) {
+        if (index >= tailOffset(size) && index < size) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new PersistentVector<>(size, shift, root, newTail);
+        }
+        leafFor(index);
+        return new PersistentVector<>(size, shift, assoc(shift, root, index, element), tail);
+    }
+
+    // A vector with the element added at the end
+    public PersistentVector<E> append(E element) {
+        if (size - tailOffset(size) < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+        // The tail is full: it becomes a leaf of the tree, growing a level when the root is full
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] {element});
+    }
+
+    // A vector with the element inserted at index; O(n) unless index is size()
+    public PersistentVector<E> insert(int index, E element) {
+        if (index == size) {
+            return append(element);
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        Object[] values = new Object[size + 1];
+        copyInto(values, 0, index, 0);
+        values[index] = element;
+        copyInto(values, index, size, index + 1);
+        return build(values, values.length);
+    }
+
+    // A vector without the element at index; O(n) unless index is in the last 32 elements
+    public PersistentVector<E> without(int index) {
+        int tailOffset = tailOffset(size);
+        if (index >= tailOffset && index < size && tail.length > 1) {
+            Object[] newTail = new Object[tail.length - 1];
+            int at = index - tailOffset;
+            System.arraycopy(tail, 0, newTail, 0, at);
+            System.arraycopy(tail, at + 1, newTail, at, newTail.length - at);
+            return new PersistentVector<>(size - 1, shift, root, newTail);
+        }
+        leafFor(index);
+        Object[] values = new Object[size - 1];
+        copyInto(values, 0, index, 0);
+        copyInto(values, index + 1, size, index);
+        return build(values, values.length);
+    }
+
+    // A vector without the elements at the given indexes, which must be ascending; O(n) once
+    // however many are removed
+    public PersistentVector<E> withoutAll(int[] indexes) {
+        if (indexes.length == 0) {
+            return this;
+        }
+        if (indexes.length == 1) {
+            return without(indexes[0]);
+        }
+        Object[] values = new Object[size - indexes.length];
+        int from = 0;
+        int at = 0;
+        for (int index : indexes) {
+            if (index < from) {
+                throw new IllegalArgumentException("Indexes must be ascending and distinct");
+            }
+            leafFor(index);
+            copyInto(values, from, index, at);
+            at += index - from;
+            from = index + 1;
+        }
+        copyInto(values, from, size, at);
+        return build(values, values.length);
+    }
+
+    // Walks leaf by leaf rather than descending the tree for every element
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private Object[] leaf;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                if ((next & MASK) == 0 || leaf == null) {
+                    leaf = leafFor(next);
+                }
+                return (E) leaf[next++ & MASK];
+            }
+        };
+    }
+
+    private void copyInto(Object[] target, int from, int to, int at) {
+        for (int i = from; i < to; ) {
+            Object[] leaf = leafFor(i);
+            int count = Math.min(WIDTH - (i & MASK), to - i);
+            System.arraycopy(leaf, i & MASK, target, at, count);
+            at += count;
+            i += count;
+        }
+    }
+
+    private static int tailOffset(int size) {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        if (index >= tailOffset(size)) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private static Object[] assoc(int level, Object[] node, int index, Object element) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = element;
+        } else {
+            int slot = (index >>> level) & MASK;
+            copy[slot] = assoc(level - BITS, (Object[]) node[slot], index, element);
+        }
+        return copy;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] leaf) {
+        int slot = ((size - 1) >>> level) & MASK;
+        Object[] copy = parent.clone();
+        if (level == BITS) {
+            copy[slot] = leaf;
+        } else {
+            Object[] child = (Object[]) parent[slot];
+            copy[slot] = child != null ? pushTail(level - BITS, child, leaf) : newPath(level - BITS, leaf);
+        }
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object[] leaf) {
+        if (level == 0) {
+            return leaf;
+        }
+        Object[] node = new Object[WIDTH];
+        node[0] = newPath(level - BITS, leaf);
+        return node;
+    }
+}
@@ -4,15 +4,30 @@ public class Room {
     private double width;
     private double length;
     private double height;
-    private String wallColor;
-    private String floorColor;
+    // Packed ARGB, or PackedColor.NONE with the text kept alongside
+    private long wallColor;
+    private long floorColor;
+    private String wallColorText;
+    private String floorColorText;
+    // Told about changes made through the setters; not carried over to copies
+    private DesignChangeBus changeBus;
 
     public Room(double width, double length, double height) {
         this.width = width;
         this.length = length;
         this.height = height;
-        this.wallColor = "#FFFFFF";
-        this.floorColor = "#CCCCCC";
+        this.wallColor = 0xFFFFFFFFL;
+        this.floorColor = 0xFFCCCCCCL;
+    }
+
+    public Room(Room other) {
+        this.width = other.width;
+        this.length = other.length;
+        this.height = other.height;
+        this.wallColor = other.wallColor;
+        this.floorColor = other.floorColor;
+        this.wallColorText = other.wallColorText;
+        this.floorColorText = other.floorColorText;
     }
 
     // Getters and setters
@@ -22,6 +37,7 @@ public class Room {
 
     public void setWidth(double width) {
         this.width = width;
+        changed();
     }
 
     public double getLength() {
@@ -30,6 +46,7 @@ public class Room {
 
     public void setLength(double length) {
         this.length = length;
+        changed();
     }
 
     public double getHeight() {
@@ -38,22 +55,56 @@ public class Room {
 
     public void setHeight(double height) {
         this.height = height;
+        changed();
     }
 
+    // The color as hex, or its text as given when it is missing or not a color
     public String getWallColor() {
-        return wallColor;
+        return wallColor == PackedColor.NONE ? wallColorText : PackedColor.format((int) wallColor);
     }
 
     public void setWallColor(String wallColor) {
-        this.wallColor = wallColor;
+        this.wallColor = PackedColor.parse(wallColor);
+        this.wallColorText = this.wallColor == PackedColor.NONE ? wallColor : null;
+        changed();
+    }
+
+    public boolean hasWallColor() {
+        return wallColor != PackedColor.NONE;
+    }
+
+    // Packed ARGB; only meaningful when hasWallColor() is true
+    public int getWallArgb() {
+        return (int) wallColor;
     }
 
     public String getFloorColor() {
-        return floorColor;
+        return floorColor == PackedColor.NONE ? floorColorText : PackedColor.format((int) floorColor);
     }
 
     public void setFloorColor(String floorColor) {
-        this.floorColor = floorColor;
+        this.floorColor = PackedColor.parse(floorColor);
+        this.floorColorText = this.floorColor == PackedColor.NONE ? floorColor : null;
+        changed();
+    }
+
+    public boolean hasFloorColor() {
+        return floorColor != PackedColor.NONE;
+    }
+
+    public int getFloorArgb() {
+        return (int) floorColor;
+    }
+
+    // Null detaches the room
+    public void setChangeBus(DesignChangeBus changeBus) {
+        this.changeBus = changeBus;
+    }
+
+    private void changed() {
+        if (changeBus != null) {
+            changeBus.roomChanged();
+        }
     }
 
     @Override
@@ -0,0 +1,100 @@
+package com.furnituredesign.services;
+
+import com.furnituredesign.models.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//AsyncDesignSaver
+// Saves designs on a background virtual thread. The caller hands over a DesignSnapshot,
+// so it can keep editing while the save is written. There is at most one save per file waiting
+// behind the one being written: a newer request for the same file replaces the waiting one
+// instead of queueing, while saves to other files are all written, oldest first.
+
+public class AsyncDesignSaver implements AutoCloseable {
+
+    public interface Listener {
+        void onStarted(File file, int furnitureCount);
+
+        void onSaved(File file, int furnitureCount, long millis);
+
+        void onFailed(File file, IOException error);
+
+        // A newer request for the same file replaced this one before it was written
+        default void onSuperseded(File file) {
+        }
+    }
+
+    private final DesignService designService;
+    private final Executor callbackExecutor;
+    private final ExecutorService worker;
+    // Waiting requests by absolute file, oldest first; guarded by itself
+    private final Map<File, Request> pending = new LinkedHashMap<>();
+
+    // Callbacks are delivered through callbackExecutor, e.g. Platform::runLater
+    public AsyncDesignSaver(DesignService designService, Executor callbackExecutor) {
+        this.designService = designService;
+        this.callbackExecutor = callbackExecutor;
+        this.worker = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("design-save").factory());
+    }
+
+    public void save(DesignSnapshot design, File file, Listener listener) {
+        Request request = new Request(design, file, listener);
+
+        Request replaced;
+        synchronized (pending) {
+            replaced = pending.put(file.getAbsoluteFile(), request);
+        }
+        // One drain task per waiting file; a replaced request keeps its task
+        if (replaced == null) {
+            worker.execute(this::drain);
+        } else {
+            callbackExecutor.execute(() -> replaced.listener.onSuperseded(replaced.file));
+        }
+    }
+
+    private void drain() {
+        Request request;
+        synchronized (pending) {
+            Iterator<Request> oldest = pending.values().iterator();
+            if (!oldest.hasNext()) {
+                return;
+            }
+            request = oldest.next();
+            oldest.remove();
+        }
+        int count = request.design.size();
+        callbackExecutor.execute(() -> request.listener.onStarted(request.file, count));
+        long start = System.nanoTime();
+        try {
+            designService.write(request.design.getRoom(), request.design.getFurniture(), request.file);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            callbackExecutor.execute(() -> request.listener.onSaved(request.file, count, millis));
+        } catch (IOException e) {
+            callbackExecutor.execute(() -> request.listener.onFailed(request.file, e));
+        }
+    }
+
+    // Finishes the save in progress and any waiting one
+    @Override
+    public void close() {
+        worker.close();
+    }
+
+    private static class Request {
+        final DesignSnapshot design;
+        final File file;
+        final Listener listener;
+
+        Request(DesignSnapshot design, File file, Listener listener) {
+            this.design = design;
+            this.file = file;
+            this.listener = listener;
+        }
+    }
+}
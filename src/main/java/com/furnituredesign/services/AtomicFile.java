@@ -0,0 +1,48 @@
+package com.furnituredesign.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+//AtomicFile
+// Replaces a file without ever leaving it half-written. The new contents go to a hidden
+// sibling temp file, are forced to disk and then moved over the target in one step, so a
+// crash during the write leaves the previous version in place.
+
+final class AtomicFile {
+
+    interface Contents {
+        // Writes the whole file; the channel is closed by the caller
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    private AtomicFile() {
+    }
+
+    static void write(File target, Contents contents) throws IOException {
+        File absolute = target.getAbsoluteFile();
+        File temp = new File(absolute.getParentFile(), "." + absolute.getName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                contents.writeTo(channel);
+                channel.force(true);
+            }
+            try {
+                Files.move(temp.toPath(), absolute.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // Some file systems cannot rename atomically; a plain replace is still better
+                // than writing over the target in place
+                Files.move(temp.toPath(), absolute.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+    }
+}
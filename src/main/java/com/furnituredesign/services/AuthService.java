@@ -1,46 +1,40 @@
 package com.furnituredesign.services;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class AuthService {
-    private static final String DB_URL = "jdbc:sqlite:furniture_designer.db";
+    private final Database database;
 
     public AuthService() {
-        try {
-            // Load the SQLite JDBC driver
-            Class.forName("org.sqlite.JDBC");
-            initializeDatabase();
-        } catch (ClassNotFoundException e) {
-            System.err.println("SQLite JDBC driver not found: " + e.getMessage());
-            e.printStackTrace();
-        }
+        this(Database.getDefault());
     }
 
-    private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = """
-                        CREATE TABLE IF NOT EXISTS users (
-                            id INTEGER PRIMARY KEY AUTOINCREMENT,
-                            username TEXT UNIQUE NOT NULL,
-                            password TEXT NOT NULL
-                        )
-                    """;
+    public AuthService(Database database) {
+        this.database = database;
+        initializeDatabase();
+    }
 
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.execute();
-            }
+    private void initializeDatabase() {
+        try {
+            database.inTransaction(db -> {
+                String sql = """
+                            CREATE TABLE IF NOT EXISTS users (
+                                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                                username TEXT UNIQUE NOT NULL,
+                                password TEXT NOT NULL
+                            )
+                        """;
+                db.prepare(sql).execute();
 
-            // Add a default admin account if none existss
-            sql = "INSERT OR IGNORE INTO users (username, password) VALUES (?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                // Add a default admin account if none existss
+                PreparedStatement stmt = db.prepare("INSERT OR IGNORE INTO users (username, password) VALUES (?, ?)");
                 stmt.setString(1, "admin");
                 stmt.setString(2, "admin"); // In production, use proper password hashing
                 stmt.execute();
-            }
+                return null;
+            });
         } catch (SQLException e) {
             System.err.println("Database initialization error: " + e.getMessage());
             e.printStackTrace();
@@ -48,15 +42,16 @@ public class AuthService {
     }
 
     public boolean authenticate(String username, String password) {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = "SELECT * FROM users WHERE username = ? AND password = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try {
+            return database.execute(db -> {
+                // Only existence matters, so select a constant and stop at the first row
+                PreparedStatement stmt = db.prepare("SELECT 1 FROM users WHERE username = ? AND password = ? LIMIT 1");
                 stmt.setString(1, username);
                 stmt.setString(2, password);
                 try (ResultSet rs = stmt.executeQuery()) {
                     return rs.next();
                 }
-            }
+            });
         } catch (SQLException e) {
             System.err.println("Authentication error: " + e.getMessage());
             e.printStackTrace();
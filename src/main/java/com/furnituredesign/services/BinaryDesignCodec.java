@@ -0,0 +1,270 @@
+package com.furnituredesign.services;
+
+import com.furnituredesign.models.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+//BinaryDesignCodec
+// Layout of a .fdb file (big-endian):
+//   header   64 bytes: magic, version, record size, counts, section offsets, room
+//   records  one fixed-width record per furniture item
+//   strings  string table holding every furniture type and color once
+// Strings are referenced by their index in the table, -1 meaning null.
+
+public class BinaryDesignCodec {
+    public static final int MAGIC = 0x46444231; // "FDB1"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 56;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Written to a temp file and moved into place, so the old file survives a failed save
+    public void write(Room room, List<Furniture> furniture, File file) throws IOException {
+        AtomicFile.write(file, channel -> write(room, furniture, channel));
+    }
+
+    private void write(Room room, List<Furniture> furniture, FileChannel channel) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        // Records first, so the string table can be collected in the same pass
+        channel.position(HEADER_SIZE);
+        for (Furniture item : furniture) {
+            if (buffer.remaining() < RECORD_SIZE) {
+                drain(channel, buffer);
+            }
+            buffer.putInt(intern(item.getType(), stringIds, strings));
+            buffer.putInt(intern(item.getColor(), stringIds, strings));
+            buffer.putDouble(item.getX());
+            buffer.putDouble(item.getY());
+            buffer.putDouble(item.getZ());
+            buffer.putDouble(item.getWidth());
+            buffer.putDouble(item.getLength());
+            buffer.putDouble(item.getHeight());
+        }
+
+        int wallColor = room != null ? intern(room.getWallColor(), stringIds, strings) : -1;
+        int floorColor = room != null ? intern(room.getFloorColor(), stringIds, strings) : -1;
+
+        long stringsOffset = HEADER_SIZE + (long) furniture.size() * RECORD_SIZE;
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("String too long for design file: " + bytes.length + " bytes");
+            }
+            if (buffer.remaining() < 2 + bytes.length) {
+                drain(channel, buffer);
+            }
+            if (buffer.remaining() < 2 + bytes.length) {
+                // Larger than the whole buffer, write it directly
+                ByteBuffer large = ByteBuffer.allocate(2 + bytes.length);
+                large.putShort((short) bytes.length).put(bytes).flip();
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+                continue;
+            }
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+        drain(channel, buffer);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) RECORD_SIZE);
+        buffer.putInt(furniture.size());
+        buffer.putInt(strings.size());
+        buffer.putLong(HEADER_SIZE);
+        buffer.putLong(stringsOffset);
+        buffer.putDouble(room != null ? room.getWidth() : 0);
+        buffer.putDouble(room != null ? room.getLength() : 0);
+        buffer.putDouble(room != null ? room.getHeight() : 0);
+        buffer.putInt(wallColor);
+        buffer.putInt(floorColor);
+        buffer.flip();
+        channel.position(0);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public Design read(File file) throws IOException {
+        List<Furniture> furniture = new ArrayList<>();
+        Room room = read(file, furniture::add);
+        Design design = new Design(room);
+        design.setFurniture(furniture);
+        return design;
+    }
+
+    public Room read(File file, Consumer<Furniture> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer map = map(channel);
+            Header header = readHeader(map, channel.size());
+            String[] strings = readStrings(map, header);
+
+            Room room = new Room(header.roomWidth, header.roomLength, header.roomHeight);
+            room.setWallColor(lookup(strings, header.wallColor));
+            room.setFloorColor(lookup(strings, header.floorColor));
+
+            FurnitureStore store = new FurnitureStore(header.furnitureCount);
+            int position = (int) header.recordsOffset;
+            for (int i = 0; i < header.furnitureCount; i++, position += header.recordSize) {
+                String type = lookup(strings, map.getInt(position));
+                Furniture item = store.add(type != null ? type : "");
+                item.setType(type);
+                item.setColor(lookup(strings, map.getInt(position + 4)));
+                item.setX(map.getDouble(position + 8));
+                item.setY(map.getDouble(position + 16));
+                item.setZ(map.getDouble(position + 24));
+                item.setWidth(map.getDouble(position + 32));
+                item.setLength(map.getDouble(position + 40));
+                item.setHeight(map.getDouble(position + 48));
+                sink.accept(item);
+            }
+            return room;
+        }
+    }
+
+    // Reads the header, string table and type column only
+    public DesignSummary summarize(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer map = map(channel);
+            Header header = readHeader(map, channel.size());
+            String[] strings = readStrings(map, header);
+
+            Room room = new Room(header.roomWidth, header.roomLength, header.roomHeight);
+            room.setWallColor(lookup(strings, header.wallColor));
+            room.setFloorColor(lookup(strings, header.floorColor));
+
+            int[] counts = new int[strings.length + 1];
+            int position = (int) header.recordsOffset;
+            for (int i = 0; i < header.furnitureCount; i++, position += header.recordSize) {
+                int id = map.getInt(position);
+                if (id < -1 || id >= strings.length) {
+                    throw new IOException("Invalid string reference " + id);
+                }
+                counts[id + 1]++;
+            }
+            Map<String, Integer> typeCounts = new HashMap<>();
+            if (counts[0] > 0) {
+                typeCounts.put("", counts[0]);
+            }
+            for (int id = 0; id < strings.length; id++) {
+                if (counts[id + 1] > 0) {
+                    typeCounts.merge(strings[id], counts[id + 1], Integer::sum);
+                }
+            }
+            return new DesignSummary(file, room, header.furnitureCount, file.lastModified(), typeCounts);
+        }
+    }
+
+    // Buffers are indexed by int, so larger files cannot be mapped in one piece
+    private static MappedByteBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Design file too large: " + size + " bytes");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    // Checks every offset and count against the file before any of them is used as an int
+    static Header readHeader(ByteBuffer map, long fileSize) throws IOException {
+        if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE || map.getInt(0) != MAGIC) {
+            throw new IOException("Not a furniture design file");
+        }
+        Header header = new Header();
+        header.version = map.getShort(4);
+        if (header.version < 1 || header.version > VERSION) {
+            throw new IOException("Unsupported design file version " + header.version);
+        }
+        header.recordSize = map.getShort(6);
+        header.furnitureCount = map.getInt(8);
+        header.stringCount = map.getInt(12);
+        header.recordsOffset = map.getLong(16);
+        header.stringsOffset = map.getLong(24);
+        header.roomWidth = map.getDouble(32);
+        header.roomLength = map.getDouble(40);
+        header.roomHeight = map.getDouble(48);
+        header.wallColor = map.getInt(56);
+        header.floorColor = map.getInt(60);
+
+        if (header.recordSize < RECORD_SIZE || header.furnitureCount < 0 || header.stringCount < 0
+                || header.recordsOffset < HEADER_SIZE || header.recordsOffset > fileSize
+                || header.stringsOffset < header.recordsOffset || header.stringsOffset > fileSize
+                || (long) header.furnitureCount * header.recordSize > header.stringsOffset - header.recordsOffset
+                || header.stringCount > (fileSize - header.stringsOffset) / 2) {
+            throw new IOException("Corrupt design file header");
+        }
+        return header;
+    }
+
+    static String[] readStrings(ByteBuffer map, Header header) throws IOException {
+        String[] strings = new String[header.stringCount];
+        ByteBuffer table = map.duplicate();
+        table.position((int) header.stringsOffset);
+        try {
+            for (int i = 0; i < strings.length; i++) {
+                int length = Short.toUnsignedInt(table.getShort());
+                byte[] bytes = new byte[length];
+                table.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt design file string table", e);
+        }
+        return strings;
+    }
+
+    static String lookup(String[] strings, int id) throws IOException {
+        if (id == -1) {
+            return null;
+        }
+        if (id < 0 || id >= strings.length) {
+            throw new IOException("Invalid string reference " + id);
+        }
+        return strings[id];
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<String> strings) {
+        if (value == null) {
+            return -1;
+        }
+        return ids.computeIfAbsent(value, v -> {
+            strings.add(v);
+            return strings.size() - 1;
+        });
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static class Header {
+        short version;
+        short recordSize;
+        int furnitureCount;
+        int stringCount;
+        long recordsOffset;
+        long stringsOffset;
+        double roomWidth;
+        double roomLength;
+        double roomHeight;
+        int wallColor;
+        int floorColor;
+    }
+}
@@ -0,0 +1,263 @@
+package com.furnituredesign.services;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Database
+// One long-lived SQLite connection per database file, shared by all services.
+// SQLite serializes writers anyway, so callers take turns on the connection instead
+// of each opening their own. Prepared statements are cached per SQL string and stay
+// open for the life of the connection, so callers must close their ResultSets but
+// never the statements they get from a Handle.
+
+public class Database implements AutoCloseable {
+    public static final String DEFAULT_URL = "jdbc:sqlite:furniture_designer.db";
+
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final Map<String, Database> instances = new HashMap<>();
+
+    private final String url;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, PreparedStatement> statements;
+    private final Handle handle = new Handle();
+    private Connection conn;
+
+    // Latency counters, guarded by lock
+    private long openNanos;
+    private long acquireCount, acquireTotalNanos, acquireMaxNanos;
+    private long queryCount, queryTotalNanos, queryMaxNanos;
+    private long statementHits, statementMisses;
+
+    public static Database getDefault() {
+        return forUrl(DEFAULT_URL);
+    }
+
+    public static synchronized Database forUrl(String url) {
+        return instances.computeIfAbsent(url, Database::new);
+    }
+
+    private Database(String url) {
+        this.url = url;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > STATEMENT_CACHE_SIZE) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public interface Work<T> {
+        T run(Handle handle) throws SQLException;
+    }
+
+    // Access to the connection while it is held by the current thread
+    public class Handle {
+        public Connection connection() {
+            return conn;
+        }
+
+        public PreparedStatement prepare(String sql) throws SQLException {
+            return prepare(sql, Statement.NO_GENERATED_KEYS);
+        }
+
+        public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            String key = autoGeneratedKeys + ":" + sql;
+            PreparedStatement stmt = statements.get(key);
+            if (stmt == null || stmt.isClosed()) {
+                statementMisses++;
+                stmt = conn.prepareStatement(sql, autoGeneratedKeys);
+                statements.put(key, stmt);
+            } else {
+                statementHits++;
+                stmt.clearParameters();
+                stmt.clearBatch();
+            }
+            return stmt;
+        }
+    }
+
+    public <T> T execute(Work<T> work) throws SQLException {
+        long requested = System.nanoTime();
+        lock.lock();
+        try {
+            record(System.nanoTime() - requested, true);
+            ensureOpen();
+            long started = System.nanoTime();
+            try {
+                return work.run(handle);
+            } finally {
+                record(System.nanoTime() - started, false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T inTransaction(Work<T> work) throws SQLException {
+        return execute(h -> {
+            boolean outermost = conn.getAutoCommit();
+            if (!outermost) {
+                return work.run(h);
+            }
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(h);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        });
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(openNanos, acquireCount, acquireTotalNanos, acquireMaxNanos,
+                    queryCount, queryTotalNanos, queryMaxNanos, statementHits, statementMisses);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            statements.values().forEach(Database::closeQuietly);
+            statements.clear();
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing database: " + e.getMessage());
+                }
+                conn = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (conn != null && !conn.isClosed()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite JDBC driver not found", e);
+        }
+        conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA foreign_keys = ON");
+        }
+        statements.clear();
+        openNanos = System.nanoTime() - start;
+    }
+
+    private void record(long nanos, boolean acquire) {
+        if (acquire) {
+            acquireCount++;
+            acquireTotalNanos += nanos;
+            acquireMaxNanos = Math.max(acquireMaxNanos, nanos);
+        } else {
+            queryCount++;
+            queryTotalNanos += nanos;
+            queryMaxNanos = Math.max(queryMaxNanos, nanos);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    public static class Stats {
+        private final long openNanos;
+        private final long acquireCount, acquireTotalNanos, acquireMaxNanos;
+        private final long queryCount, queryTotalNanos, queryMaxNanos;
+        private final long statementHits, statementMisses;
+
+        Stats(long openNanos, long acquireCount, long acquireTotalNanos, long acquireMaxNanos,
+              long queryCount, long queryTotalNanos, long queryMaxNanos, long statementHits, long statementMisses) {
+            this.openNanos = openNanos;
+            this.acquireCount = acquireCount;
+            this.acquireTotalNanos = acquireTotalNanos;
+            this.acquireMaxNanos = acquireMaxNanos;
+            this.queryCount = queryCount;
+            this.queryTotalNanos = queryTotalNanos;
+            this.queryMaxNanos = queryMaxNanos;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+        }
+
+        public double getOpenMillis() {
+            return millis(openNanos);
+        }
+
+        public long getAcquireCount() {
+            return acquireCount;
+        }
+
+        public double getAverageAcquireMillis() {
+            return acquireCount == 0 ? 0 : millis(acquireTotalNanos / acquireCount);
+        }
+
+        public double getMaxAcquireMillis() {
+            return millis(acquireMaxNanos);
+        }
+
+        public long getQueryCount() {
+            return queryCount;
+        }
+
+        public double getAverageQueryMillis() {
+            return queryCount == 0 ? 0 : millis(queryTotalNanos / queryCount);
+        }
+
+        public double getMaxQueryMillis() {
+            return millis(queryMaxNanos);
+        }
+
+        public long getStatementHits() {
+            return statementHits;
+        }
+
+        public long getStatementMisses() {
+            return statementMisses;
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("open %.2f ms, acquire avg %.3f/max %.3f ms (%d), "
+                            + "query avg %.3f/max %.3f ms (%d), statement cache %d hits/%d misses",
+                    getOpenMillis(), getAverageAcquireMillis(), getMaxAcquireMillis(), acquireCount,
+                    getAverageQueryMillis(), getMaxQueryMillis(), queryCount, statementHits, statementMisses);
+        }
+    }
+}
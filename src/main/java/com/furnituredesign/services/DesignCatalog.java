@@ -0,0 +1,255 @@
+package com.furnituredesign.services;
+
+import com.furnituredesign.models.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//DesignCatalog
+// Lists the designs in a directory by their summaries (room, furniture count, type histogram)
+// without loading any furniture. Summaries are cached in memory and in a small sidecar index
+// file in the directory, keyed by file modification time and size, so only new or changed
+// designs are read at all. Files that could not be read are remembered the same way, so they
+// are not retried until they change. Furniture is loaded only when a design is opened.
+// list() with a listener does the work on a background thread, off the FX thread.
+
+public class DesignCatalog implements AutoCloseable {
+    public static final String INDEX_FILE_NAME = ".design-index";
+
+    private static final int INDEX_MAGIC = 0x46444932; // "FDI2"
+
+    public interface Listener {
+        void onListed(File directory, List<DesignSummary> designs, long millis);
+
+        void onFailed(File directory, RuntimeException error);
+    }
+
+    private final DesignService designService;
+    private final Executor callbackExecutor;
+    private final ExecutorService worker;
+    private final Map<File, Entry> cache = new ConcurrentHashMap<>();
+    private final Set<File> indexedDirectories = ConcurrentHashMap.newKeySet();
+
+    // Callbacks are delivered through callbackExecutor, e.g. Platform::runLater
+    public DesignCatalog(DesignService designService, Executor callbackExecutor) {
+        this.designService = designService;
+        this.callbackExecutor = callbackExecutor;
+        this.worker = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("design-catalog").factory());
+    }
+
+    // Lists the directory in the background and hands the summaries to the listener
+    public void list(File directory, Listener listener) {
+        worker.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                List<DesignSummary> designs = list(directory);
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                callbackExecutor.execute(() -> listener.onListed(directory, designs, millis));
+            } catch (RuntimeException e) {
+                callbackExecutor.execute(() -> listener.onFailed(directory, e));
+            }
+        });
+    }
+
+    // Summaries of the readable designs in the directory, by name; blocks while files are read
+    public List<DesignSummary> list(File directory) {
+        if (indexedDirectories.add(directory)) {
+            readIndex(directory);
+        }
+
+        File[] files = directory.listFiles(this::isDesignFile);
+        if (files == null) {
+            return new ArrayList<>();
+        }
+
+        List<DesignSummary> summaries = new ArrayList<>(files.length);
+        List<File> stale = new ArrayList<>();
+        for (File file : files) {
+            Entry entry = cache.get(file);
+            if (entry != null && entry.modified == file.lastModified() && entry.size == file.length()) {
+                if (entry.summary != null) {
+                    summaries.add(entry.summary);
+                }
+            } else {
+                stale.add(file);
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            stale.parallelStream().forEach(this::summarize);
+            for (File file : stale) {
+                Entry entry = cache.get(file);
+                if (entry != null && entry.summary != null) {
+                    summaries.add(entry.summary);
+                }
+            }
+        }
+        Set<File> present = new HashSet<>(Arrays.asList(files));
+        boolean removed = cache.keySet().removeIf(
+                file -> directory.equals(file.getParentFile()) && !present.contains(file));
+        if (!stale.isEmpty() || removed) {
+            writeIndex(directory);
+        }
+
+        summaries.sort(Comparator.comparing(DesignSummary::getName, String.CASE_INSENSITIVE_ORDER));
+        return summaries;
+    }
+
+    public void invalidate(File file) {
+        cache.remove(file);
+    }
+
+    @Override
+    public void close() {
+        worker.close();
+    }
+
+    private boolean isDesignFile(File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        String name = file.getName().toLowerCase();
+        for (DesignFormat format : DesignFormat.values()) {
+            if (name.endsWith("." + format.getExtension())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void summarize(File file) {
+        long modified = file.lastModified();
+        long size = file.length();
+        try {
+            cache.put(file, new Entry(modified, size, designService.summarize(file)));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not read design " + file + ": " + e.getMessage());
+            // Not retried until the file changes
+            cache.put(file, new Entry(modified, size, null));
+        }
+    }
+
+    private void readIndex(File directory) {
+        File index = new File(directory, INDEX_FILE_NAME);
+        if (!index.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) {
+            if (in.readInt() != INDEX_MAGIC) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                File file = new File(directory, in.readUTF());
+                long modified = in.readLong();
+                long size = in.readLong();
+                if (!in.readBoolean()) {
+                    cache.put(file, new Entry(modified, size, null));
+                    continue;
+                }
+                Room room = null;
+                if (in.readBoolean()) {
+                    room = new Room(in.readDouble(), in.readDouble(), in.readDouble());
+                    room.setWallColor(readString(in));
+                    room.setFloorColor(readString(in));
+                }
+                int furnitureCount = in.readInt();
+                int types = in.readInt();
+                Map<String, Integer> typeCounts = new HashMap<>();
+                for (int t = 0; t < types; t++) {
+                    typeCounts.put(in.readUTF(), in.readInt());
+                }
+                cache.put(file, new Entry(modified, size,
+                        new DesignSummary(file, room, furnitureCount, modified, typeCounts)));
+            }
+        } catch (IOException e) {
+            // A damaged index only costs a rescan
+            System.err.println("Ignoring design index " + index + ": " + e.getMessage());
+        }
+    }
+
+    private void writeIndex(File directory) {
+        List<Map.Entry<File, Entry>> entries = new ArrayList<>();
+        for (Map.Entry<File, Entry> entry : cache.entrySet()) {
+            if (directory.equals(entry.getKey().getParentFile())) {
+                entries.add(entry);
+            }
+        }
+
+        File index = new File(directory, INDEX_FILE_NAME);
+        File temp = new File(directory, INDEX_FILE_NAME + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(entries.size());
+                for (Map.Entry<File, Entry> mapEntry : entries) {
+                    Entry entry = mapEntry.getValue();
+                    DesignSummary summary = entry.summary;
+                    out.writeUTF(mapEntry.getKey().getName());
+                    out.writeLong(entry.modified);
+                    out.writeLong(entry.size);
+                    // Unreadable files are recorded so they are skipped next session too
+                    out.writeBoolean(summary != null);
+                    if (summary == null) {
+                        continue;
+                    }
+                    Room room = summary.getRoom();
+                    out.writeBoolean(room != null);
+                    if (room != null) {
+                        out.writeDouble(room.getWidth());
+                        out.writeDouble(room.getLength());
+                        out.writeDouble(room.getHeight());
+                        writeString(out, room.getWallColor());
+                        writeString(out, room.getFloorColor());
+                    }
+                    out.writeInt(summary.getFurnitureCount());
+                    out.writeInt(summary.getTypeCounts().size());
+                    for (Map.Entry<String, Integer> type : summary.getTypeCounts().entrySet()) {
+                        out.writeUTF(type.getKey());
+                        out.writeInt(type.getValue());
+                    }
+                }
+            }
+            Files.move(temp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The directory may be read-only; the in-memory cache still works
+            temp.delete();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static class Entry {
+        final long modified;
+        final long size;
+        // Null when the file could not be read
+        final DesignSummary summary;
+
+        Entry(long modified, long size, DesignSummary summary) {
+            this.modified = modified;
+            this.size = size;
+            this.summary = summary;
+        }
+    }
+}
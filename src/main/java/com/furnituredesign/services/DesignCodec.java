@@ -0,0 +1,230 @@
+package com.furnituredesign.services;
+
+import com.furnituredesign.models.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+//DesignCodec
+// Streams designs to and from JSON one field at a time, so the document is never
+// held in memory as a String. The layout matches what Gson produces for Design.
+
+public class DesignCodec {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Written to a temp file and moved into place, so the old file survives a failed save
+    public void write(Room room, List<Furniture> furniture, File file) throws IOException {
+        AtomicFile.write(file, channel -> write(room, furniture, channel));
+    }
+
+    private void write(Room room, List<Furniture> furniture, FileChannel channel) throws IOException {
+        // Flushed but not closed, which would close the channel before it is forced
+        Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+        JsonWriter writer = new JsonWriter(out);
+        writer.setIndent("  ");
+        writer.beginObject();
+        if (room != null) {
+            writer.name("room");
+            writeRoom(writer, room);
+        }
+        writer.name("furniture");
+        writer.beginArray();
+        for (Furniture item : furniture) {
+            writeFurniture(writer, item);
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+    }
+
+    public Design read(File file) throws IOException {
+        List<Furniture> furniture = new ArrayList<>();
+        Room room = read(file, furniture::add);
+        Design design = new Design(room);
+        design.setFurniture(furniture);
+        return design;
+    }
+
+    // Reads the room and hands each furniture item to the consumer as soon as it is parsed
+    public Room read(File file, Consumer<Furniture> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             Reader in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+             JsonReader reader = new JsonReader(in)) {
+            FurnitureStore store = new FurnitureStore();
+            Room room = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "room":
+                        room = readRoom(reader);
+                        break;
+                    case "furniture":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            sink.accept(readFurniture(reader, store));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return room;
+        }
+    }
+
+    // Reads the room and furniture types only; every other furniture field is skipped unparsed
+    public DesignSummary summarize(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             Reader in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+             JsonReader reader = new JsonReader(in)) {
+            Room room = null;
+            int count = 0;
+            Map<String, Integer> typeCounts = new HashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                } else if (name.equals("room")) {
+                    room = readRoom(reader);
+                } else if (name.equals("furniture")) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        typeCounts.merge(readType(reader), 1, Integer::sum);
+                        count++;
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new DesignSummary(file, room, count, file.lastModified(), typeCounts);
+        }
+    }
+
+    private String readType(JsonReader reader) throws IOException {
+        String type = "";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("type") && reader.peek() == JsonToken.STRING) {
+                type = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return type;
+    }
+
+    private void writeRoom(JsonWriter writer, Room room) throws IOException {
+        writer.beginObject();
+        writer.name("width").value(room.getWidth());
+        writer.name("length").value(room.getLength());
+        writer.name("height").value(room.getHeight());
+        writeString(writer, "wallColor", room.getWallColor());
+        writeString(writer, "floorColor", room.getFloorColor());
+        writer.endObject();
+    }
+
+    private void writeFurniture(JsonWriter writer, Furniture item) throws IOException {
+        writer.beginObject();
+        writeString(writer, "type", item.getType());
+        writer.name("x").value(item.getX());
+        writer.name("y").value(item.getY());
+        writer.name("z").value(item.getZ());
+        writer.name("width").value(item.getWidth());
+        writer.name("length").value(item.getLength());
+        writer.name("height").value(item.getHeight());
+        writeString(writer, "color", item.getColor());
+        writer.endObject();
+    }
+
+    private void writeString(JsonWriter writer, String name, String value) throws IOException {
+        // Gson leaves out null fields by default, so do the same
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+
+    private Room readRoom(JsonReader reader) throws IOException {
+        double width = 0, length = 0, height = 0;
+        String wallColor = null, floorColor = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "width" -> width = reader.nextDouble();
+                case "length" -> length = reader.nextDouble();
+                case "height" -> height = reader.nextDouble();
+                case "wallColor" -> wallColor = reader.nextString();
+                case "floorColor" -> floorColor = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        Room room = new Room(width, length, height);
+        room.setWallColor(wallColor);
+        room.setFloorColor(floorColor);
+        return room;
+    }
+
+    private Furniture readFurniture(JsonReader reader, FurnitureStore store) throws IOException {
+        String type = null, color = null;
+        double x = 0, y = 0, z = 0, width = 0, length = 0, height = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "type" -> type = reader.nextString();
+                case "x" -> x = reader.nextDouble();
+                case "y" -> y = reader.nextDouble();
+                case "z" -> z = reader.nextDouble();
+                case "width" -> width = reader.nextDouble();
+                case "length" -> length = reader.nextDouble();
+                case "height" -> height = reader.nextDouble();
+                case "color" -> color = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Every field is overwritten below, so the type defaults are irrelevant here
+        Furniture item = store.add(type != null ? type : "");
+        item.setType(type);
+        item.setX(x);
+        item.setY(y);
+        item.setZ(z);
+        item.setWidth(width);
+        item.setLength(length);
+        item.setHeight(height);
+        item.setColor(color);
+        return item;
+    }
+}
@@ -0,0 +1,46 @@
+package com.furnituredesign.services;
+
+import java.io.File;
+
+//DesignFormat
+
+public enum DesignFormat {
+    JSON("json"),
+    BINARY("fdb");
+
+    private final String extension;
+
+    DesignFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getPattern() {
+        return "*." + extension;
+    }
+
+    // Picks the format from the file name, falling back to JSON
+    public static DesignFormat forFile(File file) {
+        DesignFormat format = named(file);
+        return format != null ? format : JSON;
+    }
+
+    // The file with this format's extension added, unless its name already has a design
+    // extension, e.g. when the user picked this format in a save dialog but typed no extension
+    public File withExtension(File file) {
+        return named(file) != null ? file : new File(file.getPath() + "." + extension);
+    }
+
+    private static DesignFormat named(File file) {
+        String name = file.getName().toLowerCase();
+        for (DesignFormat format : values()) {
+            if (name.endsWith("." + format.extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,497 @@
+package com.furnituredesign.services;
+
+import com.furnituredesign.models.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+//DesignJournal
+// Autosave journal. Every edit is appended as a small delta record to journal-<gen>.log.
+// The state of generation <gen> is snapshot-<gen>.fdb (empty for generation 0) with the
+// journal replayed on top. Once the journal grows past the threshold it is compacted into
+// snapshot-<gen+1>.fdb and a fresh journal, after which the old generation is deleted.
+//
+// Record framing: int payload length, int CRC32 of the payload, payload. A torn or corrupt
+// record at the tail is treated as the end of the journal.
+//
+// All file work happens on a single background thread, which also owns the shadow copy of
+// the design; callers only encode the record and hand it over.
+
+public class DesignJournal implements Closeable {
+    public static final long DEFAULT_COMPACT_THRESHOLD = 4L * 1024 * 1024;
+
+    private static final int MAGIC = 0x46444A31; // "FDJ1"
+    private static final int JOURNAL_HEADER_SIZE = 12;
+    private static final int SYNC_BATCH = 64;
+    private static final long SYNC_INTERVAL_MS = 1000;
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte MOVE = 3;
+    private static final byte ROOM = 4;
+    private static final byte INSERT = 5;
+
+    private final File directory;
+    private final long compactThreshold;
+    private final ScheduledExecutorService executor;
+    private final BinaryDesignCodec snapshotCodec = new BinaryDesignCodec();
+
+    // Owned by the journal thread
+    private Room room;
+    private final List<Furniture> furniture = new ArrayList<>();
+    // Holds the items added by journal entries since the last compaction
+    private FurnitureStore store = new FurnitureStore();
+    private long generation;
+    private FileChannel log;
+    private int unsynced;
+    private boolean dirty;
+    // The files were deleted when the design was saved; the next edit writes a new snapshot
+    private boolean discarded;
+    // Sequence number of the last edit or reset the shadow copy reflects
+    private long applied;
+
+    // Owned by the thread that records edits; counts every edit and reset handed over
+    private long sequence;
+
+    public DesignJournal(File directory) {
+        this(directory, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    public DesignJournal(File directory, long compactThreshold) {
+        this.directory = directory;
+        this.compactThreshold = compactThreshold;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "design-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        directory.mkdirs();
+        executor.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Replays the latest snapshot and journal left behind by a previous session.
+    // Returns null when there is nothing to recover.
+    public Design recover() {
+        try {
+            return executor.submit(this::replay).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            System.err.println("Journal recovery failed: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+            return null;
+        }
+    }
+
+    // Starts over from a complete design, e.g. after creating or loading one. The shadow
+    // copy is made from the snapshot on the journal thread. A null design, or one without a
+    // room, clears the journal entirely.
+    public void reset(DesignSnapshot design) {
+        long seq = ++sequence;
+        executor.execute(() -> {
+            applied = seq;
+            this.room = design != null && design.getRoom() != null ? new Room(design.getRoom()) : null;
+            this.furniture.clear();
+            if (room != null) {
+                this.furniture.addAll(FurnitureStore.copyOf(design.getFurniture()));
+            }
+            this.store = new FurnitureStore();
+            discarded = false;
+            try {
+                if (room == null) {
+                    dirty = false;
+                    discardFiles();
+                } else {
+                    dirty = true;
+                    compact();
+                }
+            } catch (IOException e) {
+                System.err.println("Journal reset failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public void recordAdd(Furniture item) {
+        append(encode(ADD, out -> writeFurniture(out, item)));
+    }
+
+    // An item put back at a given position, e.g. when a removal is undone
+    public void recordInsert(int index, Furniture item) {
+        append(encode(INSERT, out -> {
+            out.writeInt(index);
+            writeFurniture(out, item);
+        }));
+    }
+
+    public void recordRemove(int index) {
+        append(encode(REMOVE, out -> out.writeInt(index)));
+    }
+
+    public void recordMove(int index, double x, double y) {
+        append(encode(MOVE, out -> {
+            out.writeInt(index);
+            out.writeDouble(x);
+            out.writeDouble(y);
+        }));
+    }
+
+    public void recordRoom(Room room) {
+        append(encode(ROOM, out -> writeRoom(out, room)));
+    }
+
+    // Identifies the state as of the last edit recorded, to pass to markSaved once a
+    // snapshot taken now has been written
+    public long mark() {
+        return sequence;
+    }
+
+    // The state identified by the mark has been saved by the user, so it need not be offered
+    // for recovery. Ignored if edits were recorded after the mark. Otherwise the journal files
+    // are deleted right away, so a crash before the next edit leaves nothing behind; the
+    // shadow copy is kept for the snapshot that edit starts over from.
+    public void markSaved(long mark) {
+        executor.execute(() -> {
+            if (applied != mark) {
+                return;
+            }
+            try {
+                dirty = false;
+                discardFiles();
+                discarded = room != null;
+            } catch (IOException e) {
+                System.err.println("Journal discard failed: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.execute(() -> {
+            try {
+                if (dirty) {
+                    sync();
+                    closeLog();
+                } else {
+                    discardFiles();
+                }
+            } catch (IOException e) {
+                System.err.println("Journal close failed: " + e.getMessage());
+            }
+        });
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(byte[] payload) {
+        long seq = ++sequence;
+        executor.execute(() -> {
+            applied = seq;
+            try {
+                apply(payload);
+                dirty = true;
+                if (discarded) {
+                    // The new snapshot already holds this edit
+                    discarded = false;
+                    compact();
+                    return;
+                }
+                if (log == null) {
+                    openLog(generation);
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+                buffer.putInt(payload.length);
+                buffer.putInt(checksum(payload));
+                buffer.put(payload);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    log.write(buffer);
+                }
+                if (++unsynced >= SYNC_BATCH) {
+                    sync();
+                }
+                if (log.size() > compactThreshold) {
+                    compact();
+                }
+            } catch (IOException e) {
+                System.err.println("Journal append failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void sync() {
+        if (log == null || unsynced == 0) {
+            return;
+        }
+        try {
+            log.force(false);
+            unsynced = 0;
+        } catch (IOException e) {
+            System.err.println("Journal sync failed: " + e.getMessage());
+        }
+    }
+
+    private void compact() throws IOException {
+        long next = generation + 1;
+        // The codec writes through a temp file, so the snapshot appears complete or not at all
+        snapshotCodec.write(room, furniture, snapshotFile(next));
+        // The shadow copy starts over from the snapshot too, in a store holding only its rows,
+        // so the rows of items removed since the last compaction do not pile up
+        List<Furniture> compacted = FurnitureStore.copyOf(furniture);
+        furniture.clear();
+        furniture.addAll(compacted);
+        store = new FurnitureStore();
+
+        closeLog();
+        openLog(next);
+        deleteGeneration(generation);
+        generation = next;
+    }
+
+    private Design replay() throws IOException {
+        long latest = -1;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                latest = Math.max(latest, parseGeneration(file.getName()));
+            }
+        }
+        if (latest < 0) {
+            return null;
+        }
+
+        generation = latest;
+        room = null;
+        furniture.clear();
+        store = new FurnitureStore();
+        File snapshot = snapshotFile(latest);
+        if (snapshot.exists()) {
+            room = snapshotCodec.read(snapshot, furniture::add);
+        }
+
+        File journal = journalFile(latest);
+        if (journal.exists()) {
+            long validLength = JOURNAL_HEADER_SIZE;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+                if (in.readInt() != MAGIC || in.readLong() != latest) {
+                    throw new IOException("Journal header does not match generation " + latest);
+                }
+                while (true) {
+                    int length = in.readInt();
+                    int crc = in.readInt();
+                    if (length <= 0 || length > compactThreshold) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    if (checksum(payload) != crc) {
+                        break;
+                    }
+                    apply(payload);
+                    validLength += 8 + length;
+                }
+            } catch (EOFException endOfJournal) {
+                // Torn write at the tail, everything before it is intact
+            }
+            openLog(latest);
+            log.truncate(validLength);
+            log.position(validLength);
+        }
+
+        dirty = room != null;
+        if (room == null) {
+            return null;
+        }
+        return new Design(new Room(room), FurnitureStore.copyOf(furniture));
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        switch (in.readByte()) {
+            case ADD:
+                furniture.add(readFurniture(in, store));
+                break;
+            case INSERT: {
+                int index = in.readInt();
+                Furniture item = readFurniture(in, store);
+                furniture.add(Math.max(0, Math.min(index, furniture.size())), item);
+                break;
+            }
+            case REMOVE: {
+                int index = in.readInt();
+                if (index >= 0 && index < furniture.size()) {
+                    furniture.remove(index);
+                }
+                break;
+            }
+            case MOVE: {
+                int index = in.readInt();
+                double x = in.readDouble();
+                double y = in.readDouble();
+                if (index >= 0 && index < furniture.size()) {
+                    furniture.get(index).setX(x);
+                    furniture.get(index).setY(y);
+                }
+                break;
+            }
+            case ROOM:
+                room = readRoom(in);
+                break;
+            default:
+                throw new IOException("Unknown journal record type");
+        }
+    }
+
+    private void openLog(long gen) throws IOException {
+        File file = journalFile(gen);
+        boolean fresh = !file.exists() || file.length() < JOURNAL_HEADER_SIZE;
+        log = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (fresh) {
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            header.putInt(MAGIC).putLong(gen).flip();
+            log.truncate(0);
+            while (header.hasRemaining()) {
+                log.write(header);
+            }
+            log.force(true);
+        }
+        log.position(log.size());
+        unsynced = 0;
+    }
+
+    private void closeLog() throws IOException {
+        if (log != null) {
+            log.force(false);
+            log.close();
+            log = null;
+        }
+    }
+
+    private void discardFiles() throws IOException {
+        closeLog();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (parseGeneration(file.getName()) >= 0) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+        }
+    }
+
+    private void deleteGeneration(long gen) throws IOException {
+        Files.deleteIfExists(snapshotFile(gen).toPath());
+        Files.deleteIfExists(journalFile(gen).toPath());
+    }
+
+    private File snapshotFile(long gen) {
+        return new File(directory, "snapshot-" + gen + ".fdb");
+    }
+
+    private File journalFile(long gen) {
+        return new File(directory, "journal-" + gen + ".log");
+    }
+
+    private static long parseGeneration(String name) {
+        String digits;
+        if (name.startsWith("snapshot-") && name.endsWith(".fdb")) {
+            digits = name.substring(9, name.length() - 4);
+        } else if (name.startsWith("journal-") && name.endsWith(".log")) {
+            digits = name.substring(8, name.length() - 4);
+        } else {
+            return -1;
+        }
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(byte type, RecordWriter body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            body.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeFurniture(DataOutputStream out, Furniture item) throws IOException {
+        writeString(out, item.getType());
+        writeString(out, item.getColor());
+        out.writeDouble(item.getX());
+        out.writeDouble(item.getY());
+        out.writeDouble(item.getZ());
+        out.writeDouble(item.getWidth());
+        out.writeDouble(item.getLength());
+        out.writeDouble(item.getHeight());
+    }
+
+    private static Furniture readFurniture(DataInputStream in, FurnitureStore store) throws IOException {
+        String type = readString(in);
+        Furniture item = store.add(type != null ? type : "");
+        item.setType(type);
+        item.setColor(readString(in));
+        item.setX(in.readDouble());
+        item.setY(in.readDouble());
+        item.setZ(in.readDouble());
+        item.setWidth(in.readDouble());
+        item.setLength(in.readDouble());
+        item.setHeight(in.readDouble());
+        return item;
+    }
+
+    private static void writeRoom(DataOutputStream out, Room room) throws IOException {
+        out.writeDouble(room.getWidth());
+        out.writeDouble(room.getLength());
+        out.writeDouble(room.getHeight());
+        writeString(out, room.getWallColor());
+        writeString(out, room.getFloorColor());
+    }
+
+    private static Room readRoom(DataInputStream in) throws IOException {
+        Room room = new Room(in.readDouble(), in.readDouble(), in.readDouble());
+        room.setWallColor(readString(in));
+        room.setFloorColor(readString(in));
+        return room;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
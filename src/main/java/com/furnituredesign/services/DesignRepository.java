@@ -0,0 +1,287 @@
+package com.furnituredesign.services;
+
+import com.furnituredesign.models.*;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+//DesignRepository
+// Stores designs in the application database: one row per design in `designs`,
+// one row per item in `furniture`. Furniture rows are written with batched inserts
+// inside a single transaction, and listings are paged.
+
+public class DesignRepository {
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String SUMMARY_COLUMNS = """
+                SELECT id, name, room_width, room_length, room_height, wall_color, floor_color,
+                       furniture_count, updated_at
+                FROM designs
+            """;
+
+    private final Database database;
+
+    public DesignRepository() throws SQLException {
+        this(Database.getDefault());
+    }
+
+    public DesignRepository(Database database) throws SQLException {
+        this.database = database;
+        initializeDatabase();
+    }
+
+    private void initializeDatabase() throws SQLException {
+        database.execute(db -> {
+            try (Statement stmt = db.connection().createStatement()) {
+                stmt.execute("""
+                            CREATE TABLE IF NOT EXISTS designs (
+                                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                                name TEXT NOT NULL,
+                                room_width REAL NOT NULL,
+                                room_length REAL NOT NULL,
+                                room_height REAL NOT NULL,
+                                wall_color TEXT,
+                                floor_color TEXT,
+                                furniture_count INTEGER NOT NULL,
+                                updated_at INTEGER NOT NULL
+                            )
+                        """);
+                stmt.execute("""
+                            CREATE TABLE IF NOT EXISTS furniture (
+                                design_id INTEGER NOT NULL REFERENCES designs(id) ON DELETE CASCADE,
+                                position INTEGER NOT NULL,
+                                type TEXT,
+                                x REAL NOT NULL,
+                                y REAL NOT NULL,
+                                z REAL NOT NULL,
+                                width REAL NOT NULL,
+                                length REAL NOT NULL,
+                                height REAL NOT NULL,
+                                color TEXT,
+                                PRIMARY KEY (design_id, position)
+                            ) WITHOUT ROWID
+                        """);
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_furniture_type ON furniture (type, design_id)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_designs_updated ON designs (updated_at DESC)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_designs_name ON designs (name)");
+            }
+            return null;
+        });
+    }
+
+    // Inserts a new design and returns its id
+    public long saveDesign(String name, Room room, List<Furniture> furniture) throws SQLException {
+        return database.inTransaction(db -> {
+            PreparedStatement stmt = db.prepare("""
+                        INSERT INTO designs (name, room_width, room_length, room_height,
+                                             wall_color, floor_color, furniture_count, updated_at)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                    """, Statement.RETURN_GENERATED_KEYS);
+            stmt.setString(1, name);
+            bindRoom(stmt, 2, room, furniture.size());
+            stmt.executeUpdate();
+            long id;
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                id = keys.getLong(1);
+            }
+            insertFurniture(db, id, furniture);
+            return id;
+        });
+    }
+
+    // Replaces the room and furniture of an existing design
+    public void updateDesign(long id, Room room, List<Furniture> furniture) throws SQLException {
+        database.inTransaction(db -> {
+            PreparedStatement stmt = db.prepare("""
+                        UPDATE designs SET room_width = ?, room_length = ?, room_height = ?,
+                                           wall_color = ?, floor_color = ?, furniture_count = ?, updated_at = ?
+                        WHERE id = ?
+                    """);
+            bindRoom(stmt, 1, room, furniture.size());
+            stmt.setLong(8, id);
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException("No design with id " + id);
+            }
+
+            stmt = db.prepare("DELETE FROM furniture WHERE design_id = ?");
+            stmt.setLong(1, id);
+            stmt.executeUpdate();
+
+            insertFurniture(db, id, furniture);
+            return null;
+        });
+    }
+
+    public void deleteDesign(long id) throws SQLException {
+        database.execute(db -> {
+            PreparedStatement stmt = db.prepare("DELETE FROM designs WHERE id = ?");
+            stmt.setLong(1, id);
+            return stmt.executeUpdate();
+        });
+    }
+
+    public Design loadDesign(long id) throws SQLException {
+        return database.execute(db -> {
+            PreparedStatement stmt = db.prepare("""
+                        SELECT room_width, room_length, room_height, wall_color, floor_color
+                        FROM designs WHERE id = ?
+                    """);
+            stmt.setLong(1, id);
+            Room room;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                room = new Room(rs.getDouble(1), rs.getDouble(2), rs.getDouble(3));
+                room.setWallColor(rs.getString(4));
+                room.setFloorColor(rs.getString(5));
+            }
+
+            Design design = new Design(room);
+            stmt = db.prepare("""
+                        SELECT type, x, y, z, width, length, height, color
+                        FROM furniture WHERE design_id = ? ORDER BY position
+                    """);
+            stmt.setLong(1, id);
+            stmt.setFetchSize(BATCH_SIZE);
+            FurnitureStore store = new FurnitureStore();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String type = rs.getString(1);
+                    Furniture item = store.add(type != null ? type : "");
+                    item.setType(type);
+                    item.setX(rs.getDouble(2));
+                    item.setY(rs.getDouble(3));
+                    item.setZ(rs.getDouble(4));
+                    item.setWidth(rs.getDouble(5));
+                    item.setLength(rs.getDouble(6));
+                    item.setHeight(rs.getDouble(7));
+                    item.setColor(rs.getString(8));
+                    design.addFurniture(item);
+                }
+            }
+            return design;
+        });
+    }
+
+    public int countDesigns() throws SQLException {
+        return database.execute(db -> {
+            try (ResultSet rs = db.prepare("SELECT COUNT(*) FROM designs").executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    // Most recently updated first
+    public List<DesignSummary> listDesigns(int offset, int limit) throws SQLException {
+        return database.execute(db -> {
+            PreparedStatement stmt = db.prepare(SUMMARY_COLUMNS
+                    + "ORDER BY updated_at DESC, id DESC LIMIT ? OFFSET ?");
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+            return readSummaries(stmt);
+        });
+    }
+
+    public List<DesignSummary> findDesignsByName(String namePrefix, int offset, int limit) throws SQLException {
+        return database.execute(db -> {
+            // Range scan on idx_designs_name instead of LIKE, which SQLite cannot index by default
+            String upperBound = successor(namePrefix);
+            PreparedStatement stmt;
+            if (upperBound != null) {
+                stmt = db.prepare(SUMMARY_COLUMNS
+                        + "WHERE name >= ? AND name < ? ORDER BY name, id LIMIT ? OFFSET ?");
+                stmt.setString(2, upperBound);
+            } else {
+                stmt = db.prepare(SUMMARY_COLUMNS + "WHERE name >= ? ORDER BY name, id LIMIT ? OFFSET ?");
+            }
+            int next = upperBound != null ? 3 : 2;
+            stmt.setString(1, namePrefix);
+            stmt.setInt(next, limit);
+            stmt.setInt(next + 1, offset);
+            return readSummaries(stmt);
+        });
+    }
+
+    // The least string greater than every string starting with prefix, in the code point
+    // order SQLite's BINARY collation gives UTF-8 text, or null if there is none. The last code
+    // point is incremented, skipping surrogates; trailing U+10FFFF are dropped first.
+    static String successor(String prefix) {
+        int end = prefix.length();
+        while (end > 0) {
+            int last = prefix.codePointBefore(end);
+            int start = end - Character.charCount(last);
+            if (last < Character.MAX_CODE_POINT) {
+                int next = last + 1 == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : last + 1;
+                return new StringBuilder(start + 2).append(prefix, 0, start).appendCodePoint(next).toString();
+            }
+            end = start;
+        }
+        return null;
+    }
+
+    // Designs that contain at least one item of the given type
+    public List<DesignSummary> findDesignsWithType(String type, int offset, int limit) throws SQLException {
+        return database.execute(db -> {
+            PreparedStatement stmt = db.prepare(SUMMARY_COLUMNS
+                    + "WHERE id IN (SELECT DISTINCT design_id FROM furniture WHERE type = ?) "
+                    + "ORDER BY updated_at DESC, id DESC LIMIT ? OFFSET ?");
+            stmt.setString(1, type);
+            stmt.setInt(2, limit);
+            stmt.setInt(3, offset);
+            return readSummaries(stmt);
+        });
+    }
+
+    private void insertFurniture(Database.Handle db, long designId, List<Furniture> furniture) throws SQLException {
+        PreparedStatement stmt = db.prepare("""
+                    INSERT INTO furniture (design_id, position, type, x, y, z, width, length, height, color)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """);
+        int position = 0;
+        for (Furniture item : furniture) {
+            stmt.setLong(1, designId);
+            stmt.setInt(2, position);
+            stmt.setString(3, item.getType());
+            stmt.setDouble(4, item.getX());
+            stmt.setDouble(5, item.getY());
+            stmt.setDouble(6, item.getZ());
+            stmt.setDouble(7, item.getWidth());
+            stmt.setDouble(8, item.getLength());
+            stmt.setDouble(9, item.getHeight());
+            stmt.setString(10, item.getColor());
+            stmt.addBatch();
+            if (++position % BATCH_SIZE == 0) {
+                stmt.executeBatch();
+            }
+        }
+        stmt.executeBatch();
+    }
+
+    private void bindRoom(PreparedStatement stmt, int index, Room room, int furnitureCount) throws SQLException {
+        stmt.setDouble(index, room.getWidth());
+        stmt.setDouble(index + 1, room.getLength());
+        stmt.setDouble(index + 2, room.getHeight());
+        stmt.setString(index + 3, room.getWallColor());
+        stmt.setString(index + 4, room.getFloorColor());
+        stmt.setInt(index + 5, furnitureCount);
+        stmt.setLong(index + 6, System.currentTimeMillis());
+    }
+
+    private List<DesignSummary> readSummaries(PreparedStatement stmt) throws SQLException {
+        List<DesignSummary> summaries = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Room room = new Room(rs.getDouble(3), rs.getDouble(4), rs.getDouble(5));
+                room.setWallColor(rs.getString(6));
+                room.setFloorColor(rs.getString(7));
+                summaries.add(new DesignSummary(rs.getLong(1), rs.getString(2), room, rs.getInt(8), rs.getLong(9)));
+            }
+        }
+        return summaries;
+    }
+}
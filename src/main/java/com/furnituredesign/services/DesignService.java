@@ -1,28 +1,21 @@
 package com.furnituredesign.services;
 
 import com.furnituredesign.models.*;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import java.io.*;
 import java.util.List;
 
 public class DesignService {
-    private final Gson gson;
+    private final DesignCodec jsonCodec;
+    private final BinaryDesignCodec binaryCodec;
 
     public DesignService() {
-        gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .create();
+        jsonCodec = new DesignCodec();
+        binaryCodec = new BinaryDesignCodec();
     }
     //DesignService
     public void saveDesign(Room room, List<Furniture> furniture, File file) {
         try {
-            Design design = new Design(room, furniture);
-            String json = gson.toJson(design);
-
-            try (FileWriter writer = new FileWriter(file)) {
-                writer.write(json);
-            }
+            write(room, furniture, file);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -30,12 +23,40 @@ public class DesignService {
 
     public Design loadDesign(File file) {
         try {
-            try (FileReader reader = new FileReader(file)) {
-                return gson.fromJson(reader, Design.class);
-            }
-        } catch (IOException e) {
+            return read(file);
+        } catch (IOException | RuntimeException e) {
             e.printStackTrace();
             return null;
         }
     }
+
+    // Like saveDesign/loadDesign, but report failures to the caller
+    public void write(Room room, List<Furniture> furniture, File file) throws IOException {
+        if (DesignFormat.forFile(file) == DesignFormat.BINARY) {
+            binaryCodec.write(room, furniture, file);
+        } else {
+            jsonCodec.write(room, furniture, file);
+        }
+    }
+
+    public Design read(File file) throws IOException {
+        if (DesignFormat.forFile(file) == DesignFormat.BINARY) {
+            return binaryCodec.read(file);
+        }
+        return jsonCodec.read(file);
+    }
+
+    // Room, furniture count and type histogram, without building the furniture list
+    public DesignSummary summarize(File file) throws IOException {
+        if (DesignFormat.forFile(file) == DesignFormat.BINARY) {
+            return binaryCodec.summarize(file);
+        }
+        return jsonCodec.summarize(file);
+    }
+
+    // Converts between formats, picked from the file extensions
+    public void convertDesign(File source, File target) throws IOException {
+        Design design = read(source);
+        write(design.getRoom(), design.getFurniture(), target);
+    }
 }
@@ -0,0 +1,82 @@
+package com.furnituredesign.services;
+
+import com.furnituredesign.models.*;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.paint.Color;
+
+//DesignValidator
+// Checks a design for problems the editor would otherwise only show visually.
+// Furniture positions are plan pixels on a canvas of the given size, with the room
+// centred at PIXELS_PER_METER scale, exactly as draw2DView lays it out.
+
+public class DesignValidator {
+    // Size of the design canvas in main.fxml
+    public static final double DEFAULT_CANVAS_WIDTH = 800;
+    public static final double DEFAULT_CANVAS_HEIGHT = 600;
+
+    private final double canvasWidth;
+    private final double canvasHeight;
+
+    public DesignValidator() {
+        this(DEFAULT_CANVAS_WIDTH, DEFAULT_CANVAS_HEIGHT);
+    }
+
+    public DesignValidator(double canvasWidth, double canvasHeight) {
+        this.canvasWidth = canvasWidth;
+        this.canvasHeight = canvasHeight;
+    }
+
+    // Returns a description of every problem found, empty if the design is valid
+    public List<String> validate(Design design) {
+        List<String> problems = new ArrayList<>();
+        Room room = design.getRoom();
+        if (room == null) {
+            problems.add("Design has no room");
+            return problems;
+        }
+        if (room.getWidth() <= 0 || room.getLength() <= 0 || room.getHeight() <= 0) {
+            problems.add("Room dimensions must be greater than 0: " + room);
+        }
+        checkColor(problems, "Wall color", room.getWallColor());
+        checkColor(problems, "Floor color", room.getFloorColor());
+
+        double roomW = room.getWidth() * FurnitureFootprint.PIXELS_PER_METER;
+        double roomL = room.getLength() * FurnitureFootprint.PIXELS_PER_METER;
+        double startX = (canvasWidth - roomW) / 2;
+        double startY = (canvasHeight - roomL) / 2;
+
+        List<Furniture> furniture = design.getFurniture();
+        for (int i = 0; i < furniture.size(); i++) {
+            Furniture item = furniture.get(i);
+            String label = "Furniture #" + i + " (" + item.getType() + ")";
+            if (!item.getCatalogEntry().isKnown()) {
+                problems.add(label + ": unknown type");
+            }
+            if (item.getWidth() <= 0 || item.getLength() <= 0 || item.getHeight() <= 0) {
+                problems.add(label + ": dimensions must be greater than 0");
+            }
+            checkColor(problems, label + " color", item.getColor());
+
+            FurnitureFootprint footprint = item.getFootprint();
+            if (item.getX() < startX || item.getY() < startY
+                    || item.getX() + footprint.getWidth() > startX + roomW
+                    || item.getY() + footprint.getLength() > startY + roomL) {
+                problems.add(String.format("%s: outside the room at (%.1f, %.1f)", label, item.getX(), item.getY()));
+            }
+        }
+        return problems;
+    }
+
+    private void checkColor(List<String> problems, String label, String color) {
+        if (color == null) {
+            problems.add(label + " is missing");
+            return;
+        }
+        try {
+            Color.web(color);
+        } catch (IllegalArgumentException e) {
+            problems.add(label + " is not a valid color: " + color);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.furnituredesign.services;
+
+import com.furnituredesign.models.*;
+import java.util.Arrays;
+
+//UndoHistory
+// Undo and redo for design edits. Each edit is kept as a small delta - which item moved from
+// where to where, which items were removed from which positions - never as a copy of the
+// design, and a whole drag is recorded as one move. Removed items stay reachable through
+// their store rows, so putting them back costs only the reference.
+//
+// The history is a ring of edits: those before the current position can be undone, those
+// after it redone. Its estimated size is capped; once over the cap the oldest edits are
+// dropped, so a long session cannot grow the heap without bound. The cap defaults to 4 MB and
+// can be set with -Dfurnituredesign.undo.maxBytes. Recording a new edit discards whatever
+// could be redone.
+//
+// The estimate includes the store row of every item an edit holds, since the edit keeps the
+// row from being reused. Once the edit is dropped and nothing else refers to the item, the
+// list's FurnitureStore hands the row out again, so the cap bounds those rows too.
+//
+// Undoing and redoing go through an Editor, which applies the change to the design and
+// everything kept in step with it.
+//
+// Used from the FX thread only.
+
+public class UndoHistory {
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    public static final String MAX_BYTES_PROPERTY = "furnituredesign.undo.maxBytes";
+
+    // Applies edits to the design; indexes are positions in the furniture list
+    public interface Editor {
+        void insert(int index, Furniture item);
+
+        void remove(int index);
+
+        void move(int index, double x, double y);
+
+        void setRoom(Room room);
+    }
+
+    private abstract static class Edit {
+        abstract void undo(Editor editor);
+
+        abstract void redo(Editor editor);
+
+        abstract String label();
+
+        // Rough retained size in bytes, counted against the cap
+        abstract long bytes();
+    }
+
+    // Header, fields and padding of a small object, and of one reference, with compressed oops
+    private static final int OBJECT_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    // Columns of one FurnitureStore row, kept from reuse by the edit
+    private static final int ROW_BYTES = 64;
+
+    private static class Add extends Edit {
+        final int index;
+        final Furniture item;
+
+        Add(int index, Furniture item) {
+            this.index = index;
+            this.item = item;
+        }
+
+        void undo(Editor editor) {
+            editor.remove(index);
+        }
+
+        void redo(Editor editor) {
+            editor.insert(index, item);
+        }
+
+        String label() {
+            return "Add " + item.getType();
+        }
+
+        long bytes() {
+            return OBJECT_BYTES + 8 + ROW_BYTES;
+        }
+    }
+
+    // Several items removed one after another; indexes are as each was removed
+    private static class Remove extends Edit {
+        final int[] indexes;
+        final Furniture[] items;
+
+        Remove(int[] indexes, Furniture[] items) {
+            this.indexes = indexes;
+            this.items = items;
+        }
+
+        void undo(Editor editor) {
+            for (int i = indexes.length - 1; i >= 0; i--) {
+                editor.insert(indexes[i], items[i]);
+            }
+        }
+
+        void redo(Editor editor) {
+            for (int index : indexes) {
+                editor.remove(index);
+            }
+        }
+
+        String label() {
+            return items.length == 1 ? "Remove " + items[0].getType() : "Remove " + items.length + " items";
+        }
+
+        long bytes() {
+            return OBJECT_BYTES + 2L * OBJECT_BYTES + (long) items.length * (4 + REFERENCE_BYTES + ROW_BYTES);
+        }
+    }
+
+    private static class Move extends Edit {
+        final int index;
+        final Furniture item;
+        final double fromX, fromY, toX, toY;
+
+        Move(int index, Furniture item, double fromX, double fromY, double toX, double toY) {
+            this.index = index;
+            this.item = item;
+            this.fromX = fromX;
+            this.fromY = fromY;
+            this.toX = toX;
+            this.toY = toY;
+        }
+
+        void undo(Editor editor) {
+            editor.move(index, fromX, fromY);
+        }
+
+        void redo(Editor editor) {
+            editor.move(index, toX, toY);
+        }
+
+        String label() {
+            return "Move " + item.getType();
+        }
+
+        long bytes() {
+            return OBJECT_BYTES + 8 + 4 * 8;
+        }
+    }
+
+    private static class RoomChange extends Edit {
+        final Room before, after;
+
+        RoomChange(Room before, Room after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        void undo(Editor editor) {
+            editor.setRoom(new Room(before));
+        }
+
+        void redo(Editor editor) {
+            editor.setRoom(new Room(after));
+        }
+
+        String label() {
+            return "Change room";
+        }
+
+        long bytes() {
+            return OBJECT_BYTES + 8 + 2 * (OBJECT_BYTES + 6 * 8);
+        }
+    }
+
+    private final long maxBytes;
+    private Edit[] ring = new Edit[64];
+    private int first;
+    private int count;
+    // Edits [0, position) can be undone, [position, count) redone
+    private int position;
+    private long bytes;
+
+    // Capped by the furnituredesign.undo.maxBytes property, or DEFAULT_MAX_BYTES
+    public UndoHistory() {
+        this(configuredMaxBytes());
+    }
+
+    public UndoHistory(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Undo history cap must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    private static long configuredMaxBytes() {
+        Long maxBytes = Long.getLong(MAX_BYTES_PROPERTY);
+        if (maxBytes == null) {
+            return DEFAULT_MAX_BYTES;
+        }
+        if (maxBytes <= 0) {
+            System.err.println("Ignoring " + MAX_BYTES_PROPERTY + "=" + maxBytes + ", using " + DEFAULT_MAX_BYTES);
+            return DEFAULT_MAX_BYTES;
+        }
+        return maxBytes;
+    }
+
+    public void recordAdd(int index, Furniture item) {
+        record(new Add(index, item));
+    }
+
+    // The indexes are as each item was removed, in the order they were removed
+    public void recordRemove(int[] indexes, Furniture[] items) {
+        if (indexes.length != items.length) {
+            throw new IllegalArgumentException("Need one index per removed item");
+        }
+        if (items.length > 0) {
+            record(new Remove(indexes.clone(), items.clone()));
+        }
+    }
+
+    // A whole drag, from where the item was picked up to where it was dropped
+    public void recordMove(int index, Furniture item, double fromX, double fromY, double toX, double toY) {
+        if (fromX != toX || fromY != toY) {
+            record(new Move(index, item, fromX, fromY, toX, toY));
+        }
+    }
+
+    // Copies of the room before and after the change
+    public void recordRoom(Room before, Room after) {
+        record(new RoomChange(new Room(before), new Room(after)));
+    }
+
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    public boolean canRedo() {
+        return position < count;
+    }
+
+    // Number of edits that can be undone; also the position jumpTo() takes
+    public int getPosition() {
+        return position;
+    }
+
+    // Number of edits held, undoable and redoable
+    public int size() {
+        return count;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // What undo() would undo, e.g. "Move Chair", or null
+    public String getUndoLabel() {
+        return canUndo() ? get(position - 1).label() : null;
+    }
+
+    public String getRedoLabel() {
+        return canRedo() ? get(position).label() : null;
+    }
+
+    // Label of the edit at a position, from 0 to size() - 1
+    public String getLabel(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("No edit " + index + " in a history of " + count);
+        }
+        return get(index).label();
+    }
+
+    public boolean undo(Editor editor) {
+        return undo(1, editor) == 1;
+    }
+
+    public boolean redo(Editor editor) {
+        return redo(1, editor) == 1;
+    }
+
+    // Undoes up to the given number of edits, newest first; returns how many were undone
+    public int undo(int steps, Editor editor) {
+        int done = 0;
+        while (done < steps && position > 0) {
+            position--;
+            get(position).undo(editor);
+            done++;
+        }
+        return done;
+    }
+
+    public int redo(int steps, Editor editor) {
+        int done = 0;
+        while (done < steps && position < count) {
+            get(position).redo(editor);
+            position++;
+            done++;
+        }
+        return done;
+    }
+
+    // Undoes or redoes until the given number of edits are applied
+    public void jumpTo(int target, Editor editor) {
+        if (target < 0 || target > count) {
+            throw new IndexOutOfBoundsException("Position " + target + " outside history of " + count);
+        }
+        if (target < position) {
+            undo(position - target, editor);
+        } else {
+            redo(target - position, editor);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(ring, null);
+        first = 0;
+        count = 0;
+        position = 0;
+        bytes = 0;
+    }
+
+    private void record(Edit edit) {
+        // Whatever could be redone no longer follows from the design
+        while (count > position) {
+            count--;
+            bytes -= get(count).bytes();
+            set(count, null);
+        }
+        if (count == ring.length) {
+            Edit[] grown = new Edit[ring.length * 2];
+            for (int i = 0; i < count; i++) {
+                grown[i] = get(i);
+            }
+            ring = grown;
+            first = 0;
+        }
+        set(count, edit);
+        count++;
+        position = count;
+        bytes += edit.bytes();
+        // The newest edit is kept even if it alone is over the cap
+        while (bytes > maxBytes && count > 1) {
+            bytes -= get(0).bytes();
+            set(0, null);
+            first = (first + 1) % ring.length;
+            count--;
+            position--;
+        }
+    }
+
+    private Edit get(int index) {
+        return ring[(first + index) % ring.length];
+    }
+
+    private void set(int index, Edit edit) {
+        ring[(first + index) % ring.length] = edit;
+    }
+}
@@ -0,0 +1,137 @@
+package com.furnituredesign.views;
+
+import com.furnituredesign.models.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//CollisionDetector
+// Overlap tests between furniture footprints on the 2D plan, using the shapes draw2DView
+// draws: circles for ovals, axis-aligned rectangles otherwise (rounded corners are ignored).
+// Whole-design checks use sweep-and-prune along x as the broad phase; single-item checks
+// while dragging take their candidates from the SpatialIndex.
+
+public class CollisionDetector {
+    // Footprints that only touch along an edge do not count as overlapping
+    private static final double EPSILON = 1e-6;
+
+    public static class Overlap {
+        private final Furniture first;
+        private final Furniture second;
+
+        Overlap(Furniture first, Furniture second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        public Furniture getFirst() {
+            return first;
+        }
+
+        public Furniture getSecond() {
+            return second;
+        }
+    }
+
+    private final SpatialIndex spatialIndex;
+
+    public CollisionDetector(SpatialIndex spatialIndex) {
+        this.spatialIndex = spatialIndex;
+    }
+
+    // Whether the item would overlap any other indexed item if moved to (x, y)
+    public boolean collidesAt(Furniture item, double x, double y) {
+        FurnitureFootprint footprint = item.getFootprint();
+        List<Furniture> candidates = spatialIndex.query(x, y, footprint.getWidth(), footprint.getLength());
+        for (Furniture other : candidates) {
+            if (other != item
+                    && overlaps(footprint, x, y, other.getFootprint(), other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Every overlapping pair in the design
+    public List<Overlap> findAllOverlaps(List<Furniture> furniture) {
+        int n = furniture.size();
+        Furniture[] items = furniture.toArray(new Furniture[0]);
+        FurnitureFootprint[] footprints = new FurnitureFootprint[n];
+        double[] minX = new double[n];
+        double[] maxX = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            footprints[i] = items[i].getFootprint();
+            minX[i] = items[i].getX();
+            maxX[i] = minX[i] + footprints[i].getWidth();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(minX[a], minX[b]));
+
+        // Sweep along x, keeping the items whose x interval is still open
+        List<Overlap> overlaps = new ArrayList<>();
+        int[] active = new int[n];
+        int activeCount = 0;
+        for (Integer index : order) {
+            Furniture item = items[index];
+            double left = minX[index];
+
+            int kept = 0;
+            for (int a = 0; a < activeCount; a++) {
+                int otherIndex = active[a];
+                if (maxX[otherIndex] > left + EPSILON) {
+                    active[kept++] = otherIndex;
+                    if (overlaps(footprints[index], left, item.getY(), footprints[otherIndex], items[otherIndex])) {
+                        overlaps.add(new Overlap(items[otherIndex], item));
+                    }
+                }
+            }
+            activeCount = kept;
+            active[activeCount++] = index;
+        }
+        return overlaps;
+    }
+
+    static boolean overlaps(FurnitureFootprint footprint, double x, double y,
+                            FurnitureFootprint otherFootprint, Furniture other) {
+        double ow = otherFootprint.getWidth();
+        double oh = otherFootprint.getLength();
+        double w = footprint.getWidth();
+        double h = footprint.getLength();
+
+        // Bounding boxes first, which also settles rectangle against rectangle
+        if (x + w <= other.getX() + EPSILON || other.getX() + ow <= x + EPSILON
+                || y + h <= other.getY() + EPSILON || other.getY() + oh <= y + EPSILON) {
+            return false;
+        }
+
+        boolean round = footprint.getShape() == FurnitureFootprint.Shape.OVAL;
+        boolean otherRound = otherFootprint.getShape() == FurnitureFootprint.Shape.OVAL;
+        if (round && otherRound) {
+            double dx = (x + w / 2) - (other.getX() + ow / 2);
+            double dy = (y + h / 2) - (other.getY() + oh / 2);
+            double reach = radius(footprint) + radius(otherFootprint) - EPSILON;
+            return dx * dx + dy * dy < reach * reach;
+        }
+        if (round) {
+            return circleHitsRect(x + w / 2, y + h / 2, radius(footprint), other.getX(), other.getY(), ow, oh);
+        }
+        if (otherRound) {
+            return circleHitsRect(other.getX() + ow / 2, other.getY() + oh / 2, radius(otherFootprint), x, y, w, h);
+        }
+        return true;
+    }
+
+    private static double radius(FurnitureFootprint footprint) {
+        return (footprint.getWidth() + footprint.getLength()) / 4;
+    }
+
+    private static boolean circleHitsRect(double cx, double cy, double r, double rx, double ry, double rw, double rh) {
+        double nearestX = Math.max(rx, Math.min(cx, rx + rw));
+        double nearestY = Math.max(ry, Math.min(cy, ry + rh));
+        double dx = cx - nearestX;
+        double dy = cy - nearestY;
+        double reach = r - EPSILON;
+        return dx * dx + dy * dy < reach * reach;
+    }
+}
@@ -0,0 +1,33 @@
+package com.furnituredesign.views;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.scene.paint.Color;
+
+//ColorCache
+// Color objects for the packed ARGB colors stored in the models, so renderers do not
+// allocate one per item per frame. Shared with the 3D scene builder's thread, so lookups
+// are synchronized; they are uncontended on the FX thread.
+
+public final class ColorCache {
+    private static final int MAX_ENTRIES = 1024;
+
+    private static final Map<Integer, Color> colors = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Color> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private ColorCache() {
+    }
+
+    public static synchronized Color get(int argb) {
+        Color color = colors.get(argb);
+        if (color == null) {
+            color = Color.rgb(argb >> 16 & 0xFF, argb >> 8 & 0xFF, argb & 0xFF, (argb >>> 24) / 255.0);
+            colors.put(argb, color);
+        }
+        return color;
+    }
+}
@@ -0,0 +1,48 @@
+package com.furnituredesign.views;
+
+//DirtyRegion
+// Union of the canvas rectangles that need repainting before the next draw.
+
+public class DirtyRegion {
+    private double minX, minY, maxX, maxY;
+    private boolean empty = true;
+
+    public void add(double x, double y, double width, double height) {
+        if (empty) {
+            minX = x;
+            minY = y;
+            maxX = x + width;
+            maxY = y + height;
+            empty = false;
+        } else {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x + width);
+            maxY = Math.max(maxY, y + height);
+        }
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public void clear() {
+        empty = true;
+    }
+
+    public double getX() {
+        return minX;
+    }
+
+    public double getY() {
+        return minY;
+    }
+
+    public double getWidth() {
+        return maxX - minX;
+    }
+
+    public double getHeight() {
+        return maxY - minY;
+    }
+}
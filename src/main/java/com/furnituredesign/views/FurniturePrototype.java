@@ -0,0 +1,237 @@
+package com.furnituredesign.views;
+
+import com.furnituredesign.models.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.TriangleMesh;
+
+//FurniturePrototype
+// Prebuilt 3D geometry of one furniture model, shared by every item built from it. All the
+// pieces drawn in the same material are merged into one mesh per part, so a table is two
+// meshes (top in the item's color, legs in dark gray) instead of eleven shapes. Each type
+// has three levels of detail: full, reduced (coarse cylinders, no small trim) and a single
+// box of the item's size in its color.
+
+public class FurniturePrototype {
+    public static class Part {
+        private final TriangleMesh mesh;
+        private final Color fixedColor;
+        private final int triangles;
+        // The mesh's arrays, for copying it into batches
+        final float[] points;
+        final int[] faces;
+        final int[] smoothingGroups;
+
+        Part(MeshBuilder builder, Color fixedColor) {
+            this.mesh = builder.build();
+            this.fixedColor = fixedColor;
+            this.triangles = builder.getTriangleCount();
+            this.points = mesh.getPoints().toArray(null);
+            this.faces = mesh.getFaces().toArray(null);
+            this.smoothingGroups = mesh.getFaceSmoothingGroups().toArray(null);
+        }
+
+        public TriangleMesh getMesh() {
+            return mesh;
+        }
+
+        // The part's own color, or null when it takes the item's color
+        public Color getFixedColor() {
+            return fixedColor;
+        }
+
+        public int getTriangleCount() {
+            return triangles;
+        }
+    }
+
+    public static final int DETAIL_FULL = 0;
+    public static final int DETAIL_REDUCED = 1;
+    public static final int DETAIL_BOX = 2;
+    public static final int DETAIL_LEVELS = 3;
+
+    // By model ordinal
+    private static final FurniturePrototype[] prototypes = new FurniturePrototype[FurnitureFootprint.values().length];
+
+    private final double width, length, height;
+    private final Color fallbackColor;
+    private final List<List<Part>> levels = new ArrayList<>(DETAIL_LEVELS);
+
+    @SafeVarargs
+    private FurniturePrototype(double width, double length, double height, Color fallbackColor,
+                               List<Part>... levels) {
+        this.width = width;
+        this.length = length;
+        this.height = height;
+        this.fallbackColor = fallbackColor;
+        for (List<Part> parts : levels) {
+            this.levels.add(Collections.unmodifiableList(parts));
+        }
+    }
+
+    // Built on first use, by the FX thread or the 3D scene builder's
+    public static synchronized FurniturePrototype forModel(FurnitureFootprint model) {
+        FurniturePrototype prototype = prototypes[model.ordinal()];
+        if (prototype == null) {
+            prototype = build(model);
+            prototypes[model.ordinal()] = prototype;
+        }
+        return prototype;
+    }
+
+    public static FurniturePrototype forItem(Furniture item) {
+        return forModel(item.getCatalogEntry().getModel());
+    }
+
+    public static synchronized int getMeshCount() {
+        int meshes = 0;
+        for (FurniturePrototype prototype : prototypes) {
+            if (prototype == null) {
+                continue;
+            }
+            for (List<Part> parts : prototype.levels) {
+                meshes += parts.size();
+            }
+        }
+        return meshes;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getLength() {
+        return length;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    // Used when the item's own color is missing or not a color
+    public Color getFallbackColor() {
+        return fallbackColor;
+    }
+
+    // Radius of the bounding sphere around the item's geometry
+    public double getRadius() {
+        return Math.sqrt(width * width + length * length + height * height) / 2;
+    }
+
+    public List<Part> getParts() {
+        return levels.get(DETAIL_FULL);
+    }
+
+    public List<Part> getParts(int detail) {
+        return levels.get(detail);
+    }
+
+    private static FurniturePrototype build(FurnitureFootprint footprint) {
+        FurniturePrototype full = build(footprint, false);
+        FurniturePrototype reduced = build(footprint, true);
+        List<Part> box = new ArrayList<>();
+        box.add(new Part(new MeshBuilder().addBox(full.width, full.height, full.length, 0, 0, 0), null));
+        return new FurniturePrototype(full.width, full.length, full.height, full.fallbackColor,
+                full.getParts(), reduced.getParts(), box);
+    }
+
+    // Full geometry, or with coarser cylinders and without the small decorative pieces
+    private static FurniturePrototype build(FurnitureFootprint footprint, boolean reduced) {
+        List<Part> parts = new ArrayList<>();
+        MeshBuilder main = new MeshBuilder();
+        int seatDivisions = reduced ? 8 : 24;
+        int legDivisions = reduced ? 4 : 12;
+        switch (footprint) {
+            case CHAIR: {
+                // Seat - a flat cylinder
+                main.addCylinder(15, 5, seatDivisions, 0, 0, 0);
+                parts.add(new Part(main, null));
+
+                // Legs - 4 cylinders, and a simple backrest behind the seat
+                MeshBuilder wood = new MeshBuilder();
+                double legHeight = 25;
+                double legOffset = 10;
+                for (int i = 0; i < 4; i++) {
+                    wood.addCylinder(2, legHeight, legDivisions, i % 2 == 0 ? -legOffset : legOffset,
+                            legHeight / 2 + 2.5, i < 2 ? -legOffset : legOffset);
+                }
+                wood.addBox(30, 20, 2, 0, -10, -13);
+                parts.add(new Part(wood, Color.SADDLEBROWN));
+                // 30 (legs + seat) + small backrest
+                return new FurniturePrototype(30, 30, 35, Color.BROWN, parts);
+            }
+            case TABLE: {
+                // Table top with beveled edges
+                main.addBox(50, 4, 30, 0, -10, 0);
+                if (!reduced) {
+                    main.addBox(52, 1, 32, 0, -12, 0);
+                    main.addBox(52, 1, 32, 0, -8, 0);
+                }
+                parts.add(new Part(main, null));
+
+                // Legs with decorative leg tops, slightly inset from the edges
+                MeshBuilder legs = new MeshBuilder();
+                double tableLegHeight = 20;
+                double halfWidth = 23;
+                double halfLength = 13;
+                for (int i = 0; i < 4; i++) {
+                    double x = i % 2 == 0 ? -halfWidth : halfWidth;
+                    double z = i < 2 ? -halfLength : halfLength;
+                    if (!reduced) {
+                        legs.addBox(4, 2, 4, x, -1, z);
+                    }
+                    legs.addCylinder(1.5, tableLegHeight, legDivisions, x, tableLegHeight / 2, z);
+                }
+                parts.add(new Part(legs, Color.DARKGRAY));
+                return new FurniturePrototype(50, 30, 25, Color.GRAY, parts);
+            }
+            case SOFA: {
+                // Seat base, backrest and armrests
+                main.addBox(60, 15, 30, 0, 5, 0);
+                main.addBox(60, 15, 5, 0, -5, -12.5);
+                main.addBox(5, 15, 30, -27.5, 5, 0);
+                main.addBox(5, 15, 30, 27.5, 5, 0);
+                parts.add(new Part(main, null));
+                return new FurniturePrototype(60, 30, 25, Color.DARKSLATEGRAY, parts);
+            }
+            case BED: {
+                // Bed base and headboard
+                main.addBox(70, 10, 40, 0, 5, 0);
+                main.addBox(70, 15, 3, 0, -2.5, -18.5);
+                parts.add(new Part(main, null));
+
+                // Pillow area
+                parts.add(new Part(new MeshBuilder().addBox(60, 5, 10, 0, -7.5, -10), Color.WHITE));
+                return new FurniturePrototype(70, 40, 20, Color.LIGHTGRAY, parts);
+            }
+            case CABINET: {
+                main.addBox(30, 50, 20, 0, 0, 0);
+                parts.add(new Part(main, null));
+
+                // Vertical divider line (visual)
+                if (!reduced) {
+                    parts.add(new Part(new MeshBuilder().addBox(1, 48, 1, 0, 0, -9.5), Color.BLACK));
+                }
+                return new FurniturePrototype(30, 20, 50, Color.SADDLEBROWN, parts);
+            }
+            case BOOKSHELF: {
+                // 3 evenly spaced shelves inside the frame, hidden by it from most angles anyway
+                if (!reduced) {
+                    for (int i = -1; i <= 1; i++) {
+                        main.addBox(13, 1, 18, 0, i * 15, 0);
+                    }
+                }
+                main.addBox(15, 60, 20, 0, 0, 0);
+                parts.add(new Part(main, null));
+                return new FurniturePrototype(15, 20, 60, Color.BURLYWOOD, parts);
+            }
+            default: {
+                main.addBox(40, 40, 40, 0, 0, 0);
+                parts.add(new Part(main, null));
+                return new FurniturePrototype(40, 40, 40, Color.GRAY, parts);
+            }
+        }
+    }
+}
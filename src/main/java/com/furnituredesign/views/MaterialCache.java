@@ -0,0 +1,49 @@
+package com.furnituredesign.views;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+
+//MaterialCache
+// One shared PhongMaterial per color for the 3D scene. Shared materials must never be
+// modified; recoloring an item means giving its parts a different material. Past the limit
+// the least recently used colors are forgotten, and nodes still using them keep their copy.
+// Only used from the FX thread.
+
+public class MaterialCache {
+    private static final int MAX_ENTRIES = 1024;
+
+    private final Map<Color, PhongMaterial> materials = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Color, PhongMaterial> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private long hits;
+    private long misses;
+
+    public PhongMaterial get(Color color) {
+        PhongMaterial material = materials.get(color);
+        if (material != null) {
+            hits++;
+            return material;
+        }
+        misses++;
+        material = new PhongMaterial(color);
+        materials.put(color, material);
+        return material;
+    }
+
+    public int size() {
+        return materials.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,146 @@
+package com.furnituredesign.views;
+
+import java.util.Arrays;
+import javafx.scene.shape.TriangleMesh;
+
+//MeshBuilder
+// Accumulates boxes, cylinders and copies of other meshes into a single TriangleMesh, so a
+// whole group of furniture parts can be drawn by one MeshView. Triangles are wound from the
+// outward direction of the primitive they belong to, which is what JavaFX culls against.
+// Box faces are flat shaded; cylinder sides are smoothed.
+
+public class MeshBuilder {
+    private static final int FLAT = 0;
+    private static final int SMOOTH = 1;
+
+    private float[] points = new float[3 * 64];
+    private int pointCount;
+    private int[] faces = new int[6 * 64];
+    private int[] smoothing = new int[64];
+    private int faceCount;
+
+    public int getTriangleCount() {
+        return faceCount;
+    }
+
+    // Box of the given size centred on (x, y, z)
+    public MeshBuilder addBox(double width, double height, double depth, double x, double y, double z) {
+        float w = (float) width / 2, h = (float) height / 2, d = (float) depth / 2;
+        int p = pointCount;
+        for (int i = 0; i < 8; i++) {
+            addPoint(x + ((i & 1) == 0 ? -w : w), y + ((i & 2) == 0 ? -h : h), z + ((i & 4) == 0 ? -d : d));
+        }
+        // Each face as two triangles; corner bits are x=1, y=2, z=4
+        int[][] quads = {{0, 1, 3, 2}, {4, 5, 7, 6}, {0, 1, 5, 4}, {2, 3, 7, 6}, {0, 2, 6, 4}, {1, 3, 7, 5}};
+        for (int[] quad : quads) {
+            addTriangle(p + quad[0], p + quad[1], p + quad[2], x, y, z, FLAT);
+            addTriangle(p + quad[0], p + quad[2], p + quad[3], x, y, z, FLAT);
+        }
+        return this;
+    }
+
+    // Upright cylinder centred on (x, y, z), like javafx.scene.shape.Cylinder
+    public MeshBuilder addCylinder(double radius, double height, int divisions, double x, double y, double z) {
+        float h = (float) height / 2;
+        int p = pointCount;
+        for (int i = 0; i < divisions; i++) {
+            double angle = 2 * Math.PI * i / divisions;
+            double px = x + radius * Math.cos(angle);
+            double pz = z + radius * Math.sin(angle);
+            addPoint(px, y - h, pz);
+            addPoint(px, y + h, pz);
+        }
+        int top = pointCount;
+        addPoint(x, y - h, z);
+        int bottom = pointCount;
+        addPoint(x, y + h, z);
+
+        for (int i = 0; i < divisions; i++) {
+            int next = (i + 1) % divisions;
+            int t0 = p + 2 * i, b0 = t0 + 1;
+            int t1 = p + 2 * next, b1 = t1 + 1;
+            addTriangle(t0, b0, b1, x, y, z, SMOOTH);
+            addTriangle(t0, b1, t1, x, y, z, SMOOTH);
+            addTriangle(top, t0, t1, x, y, z, FLAT);
+            addTriangle(bottom, b0, b1, x, y, z, FLAT);
+        }
+        return this;
+    }
+
+    // Copy of a mesh from this builder's format, offset by (x, y, z)
+    public MeshBuilder addMesh(TriangleMesh mesh, double x, double y, double z) {
+        return addMesh(mesh.getPoints().toArray(null), mesh.getFaces().toArray(null),
+                mesh.getFaceSmoothingGroups().toArray(null), 1, 1, 1, x, y, z);
+    }
+
+    // Same, from the mesh's arrays, so repeated copies need not extract them each time, and
+    // scaled about the origin before being moved
+    MeshBuilder addMesh(float[] sourcePoints, int[] sourceFaces, int[] groups,
+                        double sx, double sy, double sz, double x, double y, double z) {
+        int p = pointCount;
+        for (int i = 0; i < sourcePoints.length; i += 3) {
+            addPoint(sourcePoints[i] * sx + x, sourcePoints[i + 1] * sy + y, sourcePoints[i + 2] * sz + z);
+        }
+        int triangles = sourceFaces.length / 6;
+        for (int f = 0; f < triangles; f++) {
+            ensureFaces();
+            faces[6 * faceCount] = p + sourceFaces[6 * f];
+            faces[6 * faceCount + 2] = p + sourceFaces[6 * f + 2];
+            faces[6 * faceCount + 4] = p + sourceFaces[6 * f + 4];
+            smoothing[faceCount] = groups.length > f ? groups[f] : FLAT;
+            faceCount++;
+        }
+        return this;
+    }
+
+    public TriangleMesh build() {
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points, 0, 3 * pointCount);
+        // No textures: every vertex uses the same texture coordinate
+        mesh.getTexCoords().setAll(0, 0);
+        mesh.getFaces().setAll(faces, 0, 6 * faceCount);
+        mesh.getFaceSmoothingGroups().setAll(smoothing, 0, faceCount);
+        return mesh;
+    }
+
+    private void addPoint(double x, double y, double z) {
+        if (3 * pointCount + 3 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[3 * pointCount] = (float) x;
+        points[3 * pointCount + 1] = (float) y;
+        points[3 * pointCount + 2] = (float) z;
+        pointCount++;
+    }
+
+    // Adds the triangle facing away from the centre of the convex part it belongs to
+    private void addTriangle(int a, int b, int c, double cx, double cy, double cz, int group) {
+        double ax = points[3 * a], ay = points[3 * a + 1], az = points[3 * a + 2];
+        double ux = points[3 * b] - ax, uy = points[3 * b + 1] - ay, uz = points[3 * b + 2] - az;
+        double vx = points[3 * c] - ax, vy = points[3 * c + 1] - ay, vz = points[3 * c + 2] - az;
+        double nx = uy * vz - uz * vy;
+        double ny = uz * vx - ux * vz;
+        double nz = ux * vy - uy * vx;
+        double ox = (ax + points[3 * b] + points[3 * c]) / 3 - cx;
+        double oy = (ay + points[3 * b + 1] + points[3 * c + 1]) / 3 - cy;
+        double oz = (az + points[3 * b + 2] + points[3 * c + 2]) / 3 - cz;
+        if (nx * ox + ny * oy + nz * oz < 0) {
+            int swap = b;
+            b = c;
+            c = swap;
+        }
+        ensureFaces();
+        faces[6 * faceCount] = a;
+        faces[6 * faceCount + 2] = b;
+        faces[6 * faceCount + 4] = c;
+        smoothing[faceCount] = group;
+        faceCount++;
+    }
+
+    private void ensureFaces() {
+        if (faceCount == smoothing.length) {
+            faces = Arrays.copyOf(faces, faces.length * 2);
+            smoothing = Arrays.copyOf(smoothing, smoothing.length * 2);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.furnituredesign.views;
+
+import com.furnituredesign.models.*;
+import java.util.List;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+//PlanRenderer
+// Draws the 2D floor plan onto the design canvas through the viewport's pan and zoom.
+// The background and room are a few fills drawn straight through the viewport transform,
+// so panning and zooming cost no more than a still view, and furniture changes only repaint
+// the dirty rectangle: the room is redrawn clipped to it and just the items the spatial
+// index finds there are drawn over it.
+// Items outside the visible part of the plan are skipped, items only a few pixels across
+// at the current zoom are drawn as plain filled rectangles, and the rest are blitted from
+// the sprite cache.
+
+public class PlanRenderer {
+    // Strokes reach half a pixel outside a footprint; keep a little slack around it (screen pixels)
+    private static final double STROKE_PADDING = 2;
+    // Items smaller than this on screen lose their shape and outline
+    private static final double DETAIL_MIN_PIXELS = 6;
+    // Visible areas covering more grid cells than this are culled by a plain scan instead
+    private static final int MAX_QUERY_CELLS = 1024;
+    // Gray, for items whose color is missing or invalid
+    private static final int FALLBACK_COLOR = 0xFF808080;
+
+    private final Canvas canvas;
+    private final SpatialIndex spatialIndex;
+    private final Viewport viewport;
+    private final DirtyRegion dirty = new DirtyRegion();
+    private final SpriteCache spriteCache = new SpriteCache();
+
+    private Room room;
+    private List<Furniture> furniture = List.of();
+
+    public PlanRenderer(Canvas canvas, SpatialIndex spatialIndex, Viewport viewport) {
+        this.canvas = canvas;
+        this.spatialIndex = spatialIndex;
+        this.viewport = viewport;
+    }
+
+    public void setDesign(Room room, List<Furniture> furniture) {
+        this.room = room;
+        this.furniture = furniture;
+    }
+
+    public SpriteCache getSpriteCache() {
+        return spriteCache;
+    }
+
+    // Marks the current footprint of the item for repainting
+    public void invalidate(Furniture item) {
+        FurnitureFootprint footprint = item.getFootprint();
+        invalidate(item.getX(), item.getY(), footprint.getWidth(), footprint.getLength());
+    }
+
+    // Marks the footprint an item had before a change for repainting
+    public void invalidate(DesignChange.Before before) {
+        FurnitureFootprint footprint = before.footprint();
+        invalidate(before.x(), before.y(), footprint.getWidth(), footprint.getLength());
+    }
+
+    // Marks a rectangle in plan coordinates for repainting
+    public void invalidate(double x, double y, double width, double height) {
+        double padding = STROKE_PADDING / viewport.getZoom();
+        dirty.add(x - padding, y - padding, width + 2 * padding, height + 2 * padding);
+    }
+
+    public void drawAll() {
+        dirty.clear();
+        if (room == null) {
+            return;
+        }
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        drawRoom(gc, 0, 0, canvas.getWidth(), canvas.getHeight());
+        double zoom = viewport.getZoom();
+        drawItems(gc, viewport.toPlanX(0), viewport.toPlanY(0),
+                canvas.getWidth() / zoom, canvas.getHeight() / zoom);
+    }
+
+    // Repaints only what was invalidated since the last draw
+    public void drawDirty() {
+        if (dirty.isEmpty() || room == null) {
+            return;
+        }
+        double x = Math.max(0, Math.floor(viewport.toScreenX(dirty.getX())));
+        double y = Math.max(0, Math.floor(viewport.toScreenY(dirty.getY())));
+        double width = Math.min(canvas.getWidth(),
+                Math.ceil(viewport.toScreenX(dirty.getX() + dirty.getWidth()))) - x;
+        double height = Math.min(canvas.getHeight(),
+                Math.ceil(viewport.toScreenY(dirty.getY() + dirty.getHeight()))) - y;
+        dirty.clear();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.save();
+        gc.beginPath();
+        gc.rect(x, y, width, height);
+        gc.clip();
+        drawRoom(gc, x, y, width, height);
+        // Items whose outline could reach into the region, in drawing order
+        double zoom = viewport.getZoom();
+        double padding = STROKE_PADDING / zoom;
+        drawItems(gc, viewport.toPlanX(x) - padding, viewport.toPlanY(y) - padding,
+                width / zoom + 2 * padding, height / zoom + 2 * padding);
+        gc.restore();
+    }
+
+    // Draws the items whose footprint intersects the plan rectangle
+    private void drawItems(GraphicsContext gc, double x, double y, double width, double height) {
+        double zoom = viewport.getZoom();
+        gc.save();
+        gc.setTransform(zoom, 0, 0, zoom, viewport.getOffsetX(), viewport.getOffsetY());
+        gc.setLineWidth(1 / zoom);
+        gc.setStroke(Color.BLACK);
+
+        double cellSize = spatialIndex.getCellSize();
+        double cells = Math.ceil(width / cellSize + 1) * Math.ceil(height / cellSize + 1);
+        if (cells <= MAX_QUERY_CELLS) {
+            for (Furniture item : spatialIndex.query(x, y, width, height)) {
+                drawFurniture(gc, item, zoom);
+            }
+        } else {
+            // Zoomed far out the grid lookups cost more than testing every item
+            double maxX = x + width;
+            double maxY = y + height;
+            for (Furniture item : furniture) {
+                FurnitureFootprint footprint = item.getFootprint();
+                double itemX = item.getX();
+                double itemY = item.getY();
+                if (itemX <= maxX && itemX + footprint.getWidth() >= x
+                        && itemY <= maxY && itemY + footprint.getLength() >= y) {
+                    drawFurniture(gc, item, zoom);
+                }
+            }
+        }
+        gc.restore();
+    }
+
+    // Background and room over a screen rectangle
+    private void drawRoom(GraphicsContext gc, double x, double y, double width, double height) {
+        Color wallColor = room.hasWallColor() ? ColorCache.get(room.getWallArgb()) : Color.WHITE;
+        gc.save();
+        // Fill background with white
+        gc.setFill(Color.WHITE);
+        gc.fillRect(x, y, width, height);
+
+        // Room centred in the canvas at the same scale as the 3D view
+        double roomW = room.getWidth() * FurnitureFootprint.PIXELS_PER_METER;
+        double roomL = room.getLength() * FurnitureFootprint.PIXELS_PER_METER;
+        double startX = (canvas.getWidth() - roomW) / 2;
+        double startY = (canvas.getHeight() - roomL) / 2;
+        double zoom = viewport.getZoom();
+        gc.setTransform(zoom, 0, 0, zoom, viewport.getOffsetX(), viewport.getOffsetY());
+        gc.setLineWidth(1 / zoom);
+        gc.setFill(wallColor);
+        gc.fillRect(startX, startY, roomW, roomL);
+        gc.setStroke(Color.BLACK);
+        gc.strokeRect(startX, startY, roomW, roomL);
+        gc.restore();
+    }
+
+    private void drawFurniture(GraphicsContext gc, Furniture item, double zoom) {
+        FurnitureFootprint footprint = item.getFootprint();
+        double x = item.getX();
+        double y = item.getY();
+        double w = footprint.getWidth();
+        double h = footprint.getLength();
+        int argb = item.hasColor() ? item.getArgb() : FALLBACK_COLOR;
+        if (Math.max(w, h) * zoom < DETAIL_MIN_PIXELS) {
+            // Too small to tell shapes apart; keep at least a pixel so it stays visible
+            gc.setFill(ColorCache.get(argb));
+            gc.fillRect(x, y, Math.max(w, 1 / zoom), Math.max(h, 1 / zoom));
+            return;
+        }
+        SpriteCache.Sprite sprite = spriteCache.get(footprint, argb, zoom);
+        if (sprite != null) {
+            sprite.draw(gc, x, y);
+            return;
+        }
+        gc.setFill(ColorCache.get(argb));
+        switch (footprint.getShape()) {
+            case OVAL:
+                // Circle for chair
+                gc.fillOval(x, y, w, h);
+                gc.strokeOval(x, y, w, h);
+                break;
+            case ROUND_RECT:
+                // Rounded rectangle for sofa
+                gc.fillRoundRect(x, y, w, h, 15, 15);
+                gc.strokeRoundRect(x, y, w, h, 15, 15);
+                break;
+            default:
+                gc.fillRect(x, y, w, h);
+                gc.strokeRect(x, y, w, h);
+        }
+    }
+}
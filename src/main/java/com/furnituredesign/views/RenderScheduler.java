@@ -0,0 +1,182 @@
+package com.furnituredesign.views;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.animation.AnimationTimer;
+
+//RenderScheduler
+// Collects requests to repaint the 2D plan, update the 3D scene or re-cull it for a moved
+// camera, and runs each at most once per JavaFX pulse. Event handlers only mark a view
+// invalid; the timer renders on the next pulse and stops again once nothing is pending, so
+// an idle window costs nothing. A full plan repaint covers any pending dirty-region repaint.
+// Tasks queued with runBeforeRender() run at the start of the pulse, so what they request is
+// rendered in that same pulse.
+// Only used from the FX thread.
+
+public class RenderScheduler {
+    private final Runnable planRenderer;
+    private final Runnable planRegionRenderer;
+    private final Runnable sceneRenderer;
+    private final Runnable viewRenderer;
+
+    private boolean planPending;
+    private boolean planRegionPending;
+    private boolean scenePending;
+    private boolean viewPending;
+    private boolean running;
+    private List<Runnable> beforeRender = new ArrayList<>();
+
+    private long requests;
+    private long coalesced;
+    private long frames;
+    private long renderNanos;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            renderPending();
+        }
+    };
+
+    public RenderScheduler(Runnable planRenderer, Runnable planRegionRenderer, Runnable sceneRenderer,
+                           Runnable viewRenderer) {
+        this.planRenderer = planRenderer;
+        this.planRegionRenderer = planRegionRenderer;
+        this.sceneRenderer = sceneRenderer;
+        this.viewRenderer = viewRenderer;
+    }
+
+    // Repaint the whole 2D plan on the next pulse
+    public void requestPlan() {
+        requests++;
+        if (planPending) {
+            coalesced++;
+        }
+        if (planRegionPending) {
+            // Covered by the full repaint
+            planRegionPending = false;
+            coalesced++;
+        }
+        planPending = true;
+        start();
+    }
+
+    // Repaint only the plan's dirty region on the next pulse
+    public void requestPlanRegion() {
+        requests++;
+        if (planPending || planRegionPending) {
+            coalesced++;
+        } else {
+            planRegionPending = true;
+        }
+        start();
+    }
+
+    // Rebuild the 3D scene on the next pulse
+    public void requestScene() {
+        requests++;
+        if (scenePending) {
+            coalesced++;
+        }
+        scenePending = true;
+        start();
+    }
+
+    // Re-cull the 3D scene for the current camera on the next pulse
+    public void requestView() {
+        requests++;
+        if (viewPending) {
+            coalesced++;
+        }
+        viewPending = true;
+        start();
+    }
+
+    // Runs the task on the next pulse, before anything is rendered. Usable as an Executor.
+    public void runBeforeRender(Runnable task) {
+        beforeRender.add(task);
+        start();
+    }
+
+    // Runs whatever is pending right away instead of waiting for the pulse
+    public void flush() {
+        if (!beforeRender.isEmpty() || planPending || planRegionPending || scenePending || viewPending) {
+            renderPending();
+        }
+    }
+
+    public void stop() {
+        timer.stop();
+        running = false;
+        planPending = false;
+        planRegionPending = false;
+        scenePending = false;
+        viewPending = false;
+        beforeRender.clear();
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public String getStats() {
+        return String.format("%d render requests, %d coalesced, %d frames, %.2f ms average frame",
+                requests, coalesced, frames, frames == 0 ? 0.0 : renderNanos / 1e6 / frames);
+    }
+
+    private void start() {
+        if (!running) {
+            running = true;
+            timer.start();
+        }
+    }
+
+    private void renderPending() {
+        if (!beforeRender.isEmpty()) {
+            List<Runnable> tasks = beforeRender;
+            beforeRender = new ArrayList<>();
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        }
+        boolean scene = scenePending;
+        boolean plan = planPending;
+        boolean planRegion = planRegionPending;
+        boolean view = viewPending;
+        scenePending = false;
+        planPending = false;
+        planRegionPending = false;
+        viewPending = false;
+
+        if (scene || plan || planRegion || view) {
+            long start = System.nanoTime();
+            if (scene) {
+                sceneRenderer.run();
+            } else if (view) {
+                // A scene update ends with a view update of its own
+                viewRenderer.run();
+            }
+            if (plan) {
+                planRenderer.run();
+            } else if (planRegion) {
+                planRegionRenderer.run();
+            }
+            renderNanos += System.nanoTime() - start;
+            frames++;
+        }
+
+        // Renderers may have asked for more; otherwise go idle until the next request
+        if (beforeRender.isEmpty() && !scenePending && !planPending && !planRegionPending && !viewPending) {
+            timer.stop();
+            running = false;
+        }
+    }
+}
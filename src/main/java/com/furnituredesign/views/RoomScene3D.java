@@ -0,0 +1,643 @@
+package com.furnituredesign.views;
+
+import com.furnituredesign.models.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javafx.geometry.Point3D;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.PointLight;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.Box;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.transform.NonInvertibleTransformException;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Transform;
+
+//RoomScene3D
+// The 3D room as a persistent scene graph. Furniture is static geometry merged into batches:
+// one mesh per material within each large square of the plan, so the number of nodes JavaFX
+// draws follows the number of colors rather than the number of items. Adding, removing,
+// moving or recoloring an item only rebuilds the batches it leaves and joins, once per sync
+// or applied DesignChange.
+// The item being edited is taken out of its batches and shown as its own node, built from
+// the shared prototype meshes. Items sized differently from their catalog entry have the
+// prototype scaled to their own width, length and height.
+// The camera belongs to the caller and is never touched here, but updateView() hides
+// batches outside its view frustum and picks each batch's level of detail from how large
+// furniture near the camera appears on screen.
+// Only used from the FX thread once shown; load() fills a new scene on any one thread.
+
+public class RoomScene3D {
+    private static final double SCALE = FurnitureFootprint.PIXELS_PER_METER;
+    // Static items are batched per material within squares of this size, in plan pixels
+    private static final double BATCH_CELL_SIZE = 2000;
+    // Typical furniture size, and how many pixels it must cover on screen for each detail level
+    private static final double TYPICAL_ITEM_SIZE = 60;
+    private static final double FULL_DETAIL_PIXELS = 48;
+    private static final double REDUCED_DETAIL_PIXELS = 16;
+
+    private final Group root = new Group();
+    private final Group furnitureGroup = new Group();
+    private final Box floor = new Box();
+    private final PhongMaterial floorMaterial = new PhongMaterial();
+    private final PointLight light1 = new PointLight(Color.WHITE);
+    private final PointLight light2 = new PointLight(Color.WHITE);
+    private final Map<Furniture, ItemView> items = new IdentityHashMap<>();
+    private final Map<String, Batch> batches = new HashMap<>();
+    private final Set<Batch> dirtyBatches = new LinkedHashSet<>();
+    private final MaterialCache materials = new MaterialCache();
+    private Furniture editing;
+    private long batchRebuilds;
+    private int visibleBatches;
+
+    private double roomW, roomL, roomH;
+    private double canvasWidth, canvasHeight;
+
+    // One item, with what it was built from so changes can be detected
+    private static class ItemView {
+        final FurniturePrototype prototype;
+        final int type;
+        int color;
+        boolean colored;
+        Color resolvedColor;
+        double x, y;
+        // The item's size, and the prototype's scale to match it
+        double width, length, height;
+        double sx = 1, sy = 1, sz = 1;
+        double tx, ty, tz;
+        // While batched: the batches holding its parts
+        final List<Batch> batches = new ArrayList<>(2);
+        // While edited: its own node and the parts that take the item's color
+        Node node;
+        final List<MeshView> coloredParts = new ArrayList<>(1);
+
+        ItemView(FurniturePrototype prototype, int type) {
+            this.prototype = prototype;
+            this.type = type;
+        }
+
+        Color partColor(FurniturePrototype.Part part) {
+            return part.getFixedColor() != null ? part.getFixedColor() : resolvedColor;
+        }
+
+        double scaledWidth() {
+            return prototype.getWidth() * sx;
+        }
+
+        double scaledLength() {
+            return prototype.getLength() * sz;
+        }
+
+        double scaledHeight() {
+            return prototype.getHeight() * sy;
+        }
+
+        double radius() {
+            return prototype.getRadius() * Math.max(sx, Math.max(sy, sz));
+        }
+    }
+
+    // Progress and cancellation of load()
+    public interface LoadMonitor {
+        boolean isCancelled();
+
+        // Fraction of the work done, from 0 to 1
+        void progress(double fraction);
+    }
+
+    // Merged geometry of the parts in one material within one cell
+    private class Batch {
+        final String key;
+        final Color color;
+        final Set<ItemView> members = new LinkedHashSet<>();
+        final MeshView view = new MeshView();
+        // Merged geometry per level of detail, built when first shown
+        final TriangleMesh[] meshes = new TriangleMesh[FurniturePrototype.DETAIL_LEVELS];
+        int detail = FurniturePrototype.DETAIL_FULL;
+        boolean inView = true;
+        double minX, minY, minZ, maxX, maxY, maxZ;
+
+        Batch(String key, Color color) {
+            this.key = key;
+            this.color = color;
+            view.setMaterial(materials.get(color));
+        }
+    }
+
+    public RoomScene3D() {
+        floor.setMaterial(floorMaterial);
+        // Floor first so furniture is drawn over it, lights after everything they light
+        root.getChildren().addAll(floor, furnitureGroup, light1, light2);
+    }
+
+    public Group getRoot() {
+        return root;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public MaterialCache getMaterials() {
+        return materials;
+    }
+
+    // Item count, scene nodes and how well the shared meshes and materials are reused
+    public String getStats() {
+        int nodes = countNodes(furnitureGroup) - 1;
+        long lookups = materials.getHits() + materials.getMisses();
+        return String.format("%d items, %d batches (%d visible, %d rebuilds), %d furniture nodes, "
+                        + "%d shared meshes, %d materials (%.1f%% reused)",
+                items.size(), batches.size(), visibleBatches, batchRebuilds, nodes, FurniturePrototype.getMeshCount(),
+                materials.size(), lookups == 0 ? 0.0 : materials.getHits() * 100.0 / lookups);
+    }
+
+    // Resizes the floor and lights and re-places every item for a new room or canvas size
+    public void setRoom(Room room, double canvasWidth, double canvasHeight) {
+        double newW = room.getWidth() * SCALE;
+        double newL = room.getLength() * SCALE;
+        double newH = room.getHeight() * SCALE;
+        if (newW == roomW && newL == roomL && newH == roomH
+                && canvasWidth == this.canvasWidth && canvasHeight == this.canvasHeight) {
+            return;
+        }
+        roomW = newW;
+        roomL = newL;
+        roomH = newH;
+        this.canvasWidth = canvasWidth;
+        this.canvasHeight = canvasHeight;
+
+        floor.setWidth(roomW);
+        floor.setHeight(5);
+        floor.setDepth(roomL);
+        floor.setTranslateY(roomH / 2);
+
+        light1.setTranslateX(0);
+        light1.setTranslateY(-roomH / 2);
+        light1.setTranslateZ(-roomL / 2);
+        light2.setTranslateX(roomW / 4);
+        light2.setTranslateY(-roomH / 3);
+        light2.setTranslateZ(-roomL / 4);
+
+        for (ItemView view : items.values()) {
+            place(view);
+        }
+        dirtyBatches.addAll(batches.values());
+        flush();
+    }
+
+    public void setFloorColor(Color color) {
+        if (!color.equals(floorMaterial.getDiffuseColor())) {
+            floorMaterial.setDiffuseColor(color);
+        }
+    }
+
+    // Keeps the item out of the batches as its own node, or returns the last one with null
+    public void setEditing(Furniture item) {
+        if (item == editing) {
+            return;
+        }
+        Furniture previous = editing;
+        editing = item;
+        if (previous != null && items.containsKey(previous)) {
+            ItemView view = items.get(previous);
+            detach(view);
+            attach(previous, view);
+        }
+        if (item != null && items.containsKey(item)) {
+            ItemView view = items.get(item);
+            detach(view);
+            attach(item, view);
+        }
+        flush();
+    }
+
+    // Brings the scene in line with the list, touching only items that changed
+    public void sync(List<Furniture> furniture) {
+        if (items.size() > furniture.size() || !items.keySet().containsAll(furniture)) {
+            Map<Furniture, Boolean> present = new IdentityHashMap<>();
+            for (Furniture item : furniture) {
+                present.put(item, Boolean.TRUE);
+            }
+            for (Furniture item : new ArrayList<>(items.keySet())) {
+                if (!present.containsKey(item)) {
+                    removeItem(item);
+                }
+            }
+        }
+        for (Furniture item : furniture) {
+            if (items.containsKey(item)) {
+                updateItem(item);
+            } else {
+                addItem(item);
+            }
+        }
+        flush();
+    }
+
+    // Fills an empty scene from a snapshot of the items, keyed by the originals so later syncs
+    // against the live list find them. Returns false, leaving the scene half built, if cancelled.
+    public boolean load(List<Furniture> items, List<Furniture> snapshot, LoadMonitor monitor) {
+        int count = snapshot.size();
+        for (int i = 0; i < count; i++) {
+            if (monitor.isCancelled()) {
+                return false;
+            }
+            ItemView view = createView(snapshot.get(i));
+            this.items.put(items.get(i), view);
+            attach(items.get(i), view);
+            // Merging the meshes is the bulk of the work
+            monitor.progress(0.2 * (i + 1) / count);
+        }
+        return flush(monitor);
+    }
+
+    public void add(Furniture item) {
+        addItem(item);
+        flush();
+    }
+
+    public void remove(Furniture item) {
+        removeItem(item);
+        flush();
+    }
+
+    // Applies a move, recolor or type change of an item already in the scene
+    public void update(Furniture item) {
+        updateItem(item);
+        flush();
+    }
+
+    // Applies one batch of edits from a DesignChangeBus, rebuilding the touched batches once
+    public void apply(DesignChange change) {
+        applyItems(change);
+        flush();
+    }
+
+    // Applies batches collected while the scene was hidden, in order, and rebuilds once
+    public void apply(List<DesignChange> changes) {
+        for (DesignChange change : changes) {
+            applyItems(change);
+        }
+        flush();
+    }
+
+    public void clear() {
+        items.clear();
+        batches.clear();
+        dirtyBatches.clear();
+        editing = null;
+        furnitureGroup.getChildren().clear();
+    }
+
+    private void applyItems(DesignChange change) {
+        for (Furniture item : change.getRemoved()) {
+            removeItem(item);
+        }
+        for (Furniture item : change.getAdded()) {
+            addItem(item);
+        }
+        for (Furniture item : change.getChanged()) {
+            updateItem(item);
+        }
+    }
+
+    private void addItem(Furniture item) {
+        if (items.containsKey(item)) {
+            updateItem(item);
+            return;
+        }
+        ItemView view = createView(item);
+        items.put(item, view);
+        attach(item, view);
+    }
+
+    private void removeItem(Furniture item) {
+        ItemView view = items.remove(item);
+        if (view != null) {
+            detach(view);
+        }
+        if (item == editing) {
+            editing = null;
+        }
+    }
+
+    private void updateItem(Furniture item) {
+        ItemView view = items.get(item);
+        if (view == null) {
+            addItem(item);
+            return;
+        }
+        if (view.type != item.getTypeId()) {
+            // A different type is a different shape and size
+            detach(view);
+            ItemView replacement = createView(item);
+            items.put(item, replacement);
+            attach(item, replacement);
+            return;
+        }
+        boolean recolored = view.colored != item.hasColor() || view.color != item.getArgb();
+        boolean moved = view.x != item.getX() || view.y != item.getY();
+        boolean resized = view.width != item.getWidth() || view.length != item.getLength()
+                || view.height != item.getHeight();
+        if (!recolored && !moved && !resized) {
+            return;
+        }
+        if (recolored) {
+            setColor(view, item);
+        }
+        if (moved) {
+            view.x = item.getX();
+            view.y = item.getY();
+        }
+        if (resized) {
+            // The merged geometry is baked at the old size, so rejoin the batches
+            setSize(view, item);
+            detach(view);
+            attach(item, view);
+            return;
+        }
+        if (view.node != null) {
+            // Materials are shared, so switch to the one for the new color
+            PhongMaterial material = materials.get(view.resolvedColor);
+            for (MeshView part : view.coloredParts) {
+                part.setMaterial(material);
+            }
+            place(view);
+        } else {
+            detach(view);
+            attach(item, view);
+        }
+    }
+
+    private void attach(Furniture item, ItemView view) {
+        place(view);
+        if (item == editing) {
+            view.node = createNode(view);
+            furnitureGroup.getChildren().add(view.node);
+            return;
+        }
+        long cellX = (long) Math.floor(view.x / BATCH_CELL_SIZE);
+        long cellY = (long) Math.floor(view.y / BATCH_CELL_SIZE);
+        for (FurniturePrototype.Part part : view.prototype.getParts()) {
+            Color color = view.partColor(part);
+            String key = color + "@" + cellX + "," + cellY;
+            Batch batch = batches.computeIfAbsent(key, k -> new Batch(k, color));
+            if (batch.members.add(view)) {
+                view.batches.add(batch);
+                dirtyBatches.add(batch);
+            }
+        }
+    }
+
+    private void detach(ItemView view) {
+        if (view.node != null) {
+            furnitureGroup.getChildren().remove(view.node);
+            view.node = null;
+            view.coloredParts.clear();
+        }
+        for (Batch batch : view.batches) {
+            batch.members.remove(view);
+            dirtyBatches.add(batch);
+        }
+        view.batches.clear();
+    }
+
+    // Rebuilds the merged mesh of every batch that gained, lost or moved an item
+    private void flush() {
+        flush(null);
+    }
+
+    private boolean flush(LoadMonitor monitor) {
+        int done = 0;
+        int total = dirtyBatches.size();
+        for (Batch batch : dirtyBatches) {
+            if (monitor != null) {
+                if (monitor.isCancelled()) {
+                    return false;
+                }
+                monitor.progress(0.2 + 0.8 * done++ / total);
+            }
+            if (batch.members.isEmpty()) {
+                batches.remove(batch.key);
+                furnitureGroup.getChildren().remove(batch.view);
+                continue;
+            }
+            batch.minX = batch.minY = batch.minZ = Double.POSITIVE_INFINITY;
+            batch.maxX = batch.maxY = batch.maxZ = Double.NEGATIVE_INFINITY;
+            for (ItemView view : batch.members) {
+                batch.minX = Math.min(batch.minX, view.tx - view.scaledWidth() / 2);
+                batch.maxX = Math.max(batch.maxX, view.tx + view.scaledWidth() / 2);
+                batch.minY = Math.min(batch.minY, view.ty - view.scaledHeight() / 2);
+                batch.maxY = Math.max(batch.maxY, view.ty + view.scaledHeight() / 2);
+                batch.minZ = Math.min(batch.minZ, view.tz - view.scaledLength() / 2);
+                batch.maxZ = Math.max(batch.maxZ, view.tz + view.scaledLength() / 2);
+            }
+            Arrays.fill(batch.meshes, null);
+            show(batch, batch.detail);
+            if (batch.view.getParent() == null) {
+                // Batches go underneath the separately shown item
+                furnitureGroup.getChildren().add(0, batch.view);
+            }
+        }
+        dirtyBatches.clear();
+        return true;
+    }
+
+    // Culls batches and the edited item against the camera's view and sets each batch's detail
+    public void updateView(PerspectiveCamera camera, double viewWidth, double viewHeight) {
+        if (camera == null || viewWidth <= 0 || viewHeight <= 0) {
+            return;
+        }
+        Transform toScene = camera.getLocalToSceneTransform();
+        Point3D eye = toScene.transform(0, 0, 0);
+        double halfFov = Math.toRadians(camera.getFieldOfView()) / 2;
+        double aspect = viewWidth / viewHeight;
+        double tanV = camera.isVerticalFieldOfView() ? Math.tan(halfFov) : Math.tan(halfFov) / aspect;
+        double tanH = tanV * aspect;
+        // Pixels covered by one unit at distance one
+        double focal = (viewHeight / 2) / tanV;
+        Frustum frustum = new Frustum(toScene, tanH, tanV, camera.getNearClip(), camera.getFarClip());
+
+        visibleBatches = 0;
+        for (Batch batch : batches.values()) {
+            double cx = (batch.minX + batch.maxX) / 2;
+            double cy = (batch.minY + batch.maxY) / 2;
+            double cz = (batch.minZ + batch.maxZ) / 2;
+            double radius = Math.sqrt(sq(batch.maxX - cx) + sq(batch.maxY - cy) + sq(batch.maxZ - cz));
+            batch.inView = frustum.intersects(cx, cy, cz, radius);
+            if (batch.inView) {
+                visibleBatches++;
+                // Detail follows the nearest part of the batch
+                double dx = Math.max(batch.minX - eye.getX(), Math.max(0, eye.getX() - batch.maxX));
+                double dy = Math.max(batch.minY - eye.getY(), Math.max(0, eye.getY() - batch.maxY));
+                double dz = Math.max(batch.minZ - eye.getZ(), Math.max(0, eye.getZ() - batch.maxZ));
+                double pixels = TYPICAL_ITEM_SIZE * focal / Math.max(1, Math.sqrt(dx * dx + dy * dy + dz * dz));
+                int detail = pixels >= FULL_DETAIL_PIXELS ? FurniturePrototype.DETAIL_FULL
+                        : pixels >= REDUCED_DETAIL_PIXELS ? FurniturePrototype.DETAIL_REDUCED
+                        : FurniturePrototype.DETAIL_BOX;
+                show(batch, detail);
+            } else {
+                batch.view.setVisible(false);
+            }
+        }
+        if (editing != null && items.containsKey(editing)) {
+            ItemView view = items.get(editing);
+            if (view.node != null) {
+                view.node.setVisible(frustum.intersects(view.tx, view.ty, view.tz, view.radius()));
+            }
+        }
+    }
+
+    private void show(Batch batch, int detail) {
+        TriangleMesh mesh = batch.meshes[detail];
+        if (mesh == null) {
+            MeshBuilder builder = new MeshBuilder();
+            for (ItemView view : batch.members) {
+                for (FurniturePrototype.Part part : view.prototype.getParts(detail)) {
+                    if (batch.color.equals(view.partColor(part))) {
+                        builder.addMesh(part.points, part.faces, part.smoothingGroups,
+                                view.sx, view.sy, view.sz, view.tx, view.ty, view.tz);
+                    }
+                }
+            }
+            mesh = builder.getTriangleCount() > 0 ? builder.build() : null;
+            batch.meshes[detail] = mesh;
+            batchRebuilds++;
+        }
+        batch.detail = detail;
+        if (mesh != null && batch.view.getMesh() != mesh) {
+            batch.view.setMesh(mesh);
+        }
+        // Some materials only appear in the finer levels
+        batch.view.setVisible(batch.inView && mesh != null);
+    }
+
+    private static double sq(double value) {
+        return value * value;
+    }
+
+    // The camera's view volume, tested in camera space: looking down +z with y pointing down
+    private static class Frustum {
+        final Transform toScene;
+        final double cosH, sinH, cosV, sinV;
+        final double near, far;
+
+        Frustum(Transform toScene, double tanH, double tanV, double near, double far) {
+            this.toScene = toScene;
+            double h = Math.atan(tanH);
+            double v = Math.atan(tanV);
+            cosH = Math.cos(h);
+            sinH = Math.sin(h);
+            cosV = Math.cos(v);
+            sinV = Math.sin(v);
+            this.near = near;
+            this.far = far;
+        }
+
+        boolean intersects(double x, double y, double z, double radius) {
+            Point3D p;
+            try {
+                p = toScene.inverseTransform(x, y, z);
+            } catch (NonInvertibleTransformException e) {
+                return true;
+            }
+            // Signed distances outside each side plane
+            return p.getZ() + radius >= near && p.getZ() - radius <= far
+                    && p.getX() * cosH - p.getZ() * sinH <= radius
+                    && -p.getX() * cosH - p.getZ() * sinH <= radius
+                    && p.getY() * cosV - p.getZ() * sinV <= radius
+                    && -p.getY() * cosV - p.getZ() * sinV <= radius;
+        }
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Group) {
+            for (Node child : ((Group) node).getChildren()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    private void place(ItemView view) {
+        // Map 2D coordinates to 3D space, matching the room centred in the 2D view
+        double startX = (canvasWidth - roomW) / 2;
+        double startY = (canvasHeight - roomL) / 2;
+        view.tx = view.x - startX - (roomW / 2) + view.scaledWidth() / 2;
+        view.tz = view.y - startY - (roomL / 2) + view.scaledLength() / 2;
+        // Place furniture exactly on the floor surface
+        view.ty = roomH / 2 - view.scaledHeight() / 2 + 2.5; // +2.5 to place on floor surface
+
+        if (view.node != null) {
+            view.node.setTranslateX(view.tx);
+            view.node.setTranslateY(view.ty);
+            view.node.setTranslateZ(view.tz);
+        }
+    }
+
+    private static ItemView createView(Furniture furniture) {
+        FurniturePrototype prototype = FurniturePrototype.forItem(furniture);
+        ItemView view = new ItemView(prototype, furniture.getTypeId());
+        setColor(view, furniture);
+        setSize(view, furniture);
+        view.x = furniture.getX();
+        view.y = furniture.getY();
+        return view;
+    }
+
+    // Scale of the prototype, built at the catalog's default size, for the item's own size
+    private static void setSize(ItemView view, Furniture furniture) {
+        FurnitureCatalog.Entry entry = furniture.getCatalogEntry();
+        view.width = furniture.getWidth();
+        view.length = furniture.getLength();
+        view.height = furniture.getHeight();
+        view.sx = scale(view.width, entry.getWidth());
+        view.sz = scale(view.length, entry.getLength());
+        view.sy = scale(view.height, entry.getHeight());
+    }
+
+    private static double scale(double size, double defaultSize) {
+        // Sizes that are missing or not positive keep the default
+        return size > 0 && defaultSize > 0 ? size / defaultSize : 1;
+    }
+
+    private static void setColor(ItemView view, Furniture furniture) {
+        view.color = furniture.getArgb();
+        view.colored = furniture.hasColor();
+        view.resolvedColor = view.colored ? ColorCache.get(view.color) : view.prototype.getFallbackColor();
+    }
+
+    // The item as its own node over the shared prototype meshes
+    private Node createNode(ItemView view) {
+        List<FurniturePrototype.Part> parts = view.prototype.getParts();
+        MeshView[] views = new MeshView[parts.size()];
+        for (int i = 0; i < views.length; i++) {
+            FurniturePrototype.Part part = parts.get(i);
+            views[i] = new MeshView(part.getMesh());
+            views[i].setMaterial(materials.get(view.partColor(part)));
+            if (part.getFixedColor() == null) {
+                view.coloredParts.add(views[i]);
+            }
+        }
+        // A single part needs no group around it
+        Node node = views.length == 1 ? views[0] : new Group(views);
+        // Scaled about the prototype's origin, as the merged batches are
+        node.getTransforms().add(new Scale(view.sx, view.sy, view.sz));
+        node.setTranslateX(view.tx);
+        node.setTranslateY(view.ty);
+        node.setTranslateZ(view.tz);
+        return node;
+    }
+}
@@ -0,0 +1,136 @@
+package com.furnituredesign.views;
+
+import com.furnituredesign.models.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import javafx.scene.paint.Color;
+
+//SceneBuilder3D
+// Builds a complete RoomScene3D on a background thread, so opening the 3D view of a large
+// design does not freeze the window. The build reads a DesignSnapshot of the design and
+// the finished scene, not yet attached to anything, is handed back through the callback
+// executor to be swapped in whole. Starting a new build cancels the one in progress.
+
+public class SceneBuilder3D implements AutoCloseable {
+
+    public interface Listener {
+        // Fraction of the build done, from 0 to 1
+        void onProgress(double fraction);
+
+        void onBuilt(RoomScene3D scene, long millis);
+
+        void onFailed(Throwable error);
+
+        // A newer build or cancel() stopped this one before it finished
+        default void onCancelled() {
+        }
+    }
+
+    // Progress is passed on in steps of this size, not for every item
+    private static final double PROGRESS_STEP = 0.02;
+
+    private final Executor callbackExecutor;
+    private final ExecutorService worker;
+    private final AtomicReference<Build> current = new AtomicReference<>();
+
+    // Callbacks are delivered through callbackExecutor, e.g. Platform::runLater
+    public SceneBuilder3D(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        this.worker = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("scene-build").factory());
+    }
+
+    // The scene's items are keyed by the live items the snapshot was taken from, so it can be
+    // synced with their list later
+    public void build(DesignSnapshot design, Color floorColor, double canvasWidth, double canvasHeight,
+                      Listener listener) {
+        Build build = new Build(design, floorColor, canvasWidth, canvasHeight, listener);
+
+        Build replaced = current.getAndSet(build);
+        if (replaced != null) {
+            replaced.cancelled = true;
+        }
+        worker.execute(() -> run(build));
+    }
+
+    public boolean isBuilding() {
+        return current.get() != null;
+    }
+
+    // Stops the build in progress; its scene is never delivered
+    public void cancel() {
+        Build build = current.getAndSet(null);
+        if (build != null) {
+            build.cancelled = true;
+        }
+    }
+
+    private void run(Build build) {
+        if (build.cancelled) {
+            callbackExecutor.execute(build.listener::onCancelled);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            RoomScene3D scene = new RoomScene3D();
+            scene.setRoom(build.design.getRoom(), build.canvasWidth, build.canvasHeight);
+            scene.setFloorColor(build.floorColor);
+            boolean finished = scene.load(build.design.getItems(), build.design.getFurniture(), build);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            callbackExecutor.execute(() -> {
+                // Checked again here: the build may have been cancelled while this waited
+                if (finished && !build.cancelled && current.compareAndSet(build, null)) {
+                    build.listener.onBuilt(scene, millis);
+                } else {
+                    build.listener.onCancelled();
+                }
+            });
+        } catch (RuntimeException e) {
+            current.compareAndSet(build, null);
+            callbackExecutor.execute(() -> build.listener.onFailed(e));
+        }
+    }
+
+    // Cancels the build in progress and waits for the worker to stop
+    @Override
+    public void close() {
+        cancel();
+        worker.close();
+    }
+
+    private class Build implements RoomScene3D.LoadMonitor {
+        final DesignSnapshot design;
+        final Color floorColor;
+        final double canvasWidth, canvasHeight;
+        final Listener listener;
+        volatile boolean cancelled;
+        double reported;
+
+        Build(DesignSnapshot design, Color floorColor, double canvasWidth, double canvasHeight,
+              Listener listener) {
+            this.design = design;
+            this.floorColor = floorColor;
+            this.canvasWidth = canvasWidth;
+            this.canvasHeight = canvasHeight;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void progress(double fraction) {
+            if (fraction - reported >= PROGRESS_STEP && !cancelled) {
+                reported = fraction;
+                callbackExecutor.execute(() -> {
+                    if (!cancelled) {
+                        listener.onProgress(fraction);
+                    }
+                });
+            }
+        }
+    }
+}
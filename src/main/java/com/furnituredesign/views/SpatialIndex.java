@@ -0,0 +1,211 @@
+package com.furnituredesign.views;
+
+import com.furnituredesign.models.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//SpatialIndex
+// Uniform grid over the 2D plan footprints of furniture. Each item is registered in every
+// cell its footprint touches, so point picks and rectangle queries only look at the items
+// in the few cells they cover. Items keep the sequence number they were added with, which
+// follows the drawing order, so a pick returns the topmost item under the point.
+
+public class SpatialIndex {
+    public static final double DEFAULT_CELL_SIZE = 64;
+
+    private final double cellSize;
+    private final Map<Long, List<Furniture>> cells = new HashMap<>();
+    private final Map<Furniture, Slot> slots = new IdentityHashMap<>();
+    private long nextSequence;
+
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void rebuild(List<Furniture> furniture) {
+        clear();
+        for (Furniture item : furniture) {
+            insert(item);
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+        slots.clear();
+        nextSequence = 0;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    // Adds the item on top of everything already indexed
+    public void insert(Furniture item) {
+        Slot slot = new Slot(nextSequence++);
+        slots.put(item, slot);
+        place(item, slot);
+    }
+
+    public void remove(Furniture item) {
+        Slot slot = slots.remove(item);
+        if (slot != null) {
+            forEachCell(slot, cell -> {
+                List<Furniture> items = cells.get(cell);
+                if (items != null) {
+                    items.remove(item);
+                    if (items.isEmpty()) {
+                        cells.remove(cell);
+                    }
+                }
+            });
+        }
+    }
+
+    // Re-registers the item after it moved, keeping its place in the drawing order
+    public void update(Furniture item) {
+        Slot slot = slots.get(item);
+        if (slot == null) {
+            insert(item);
+            return;
+        }
+        int minX = cell(item.getX());
+        int minY = cell(item.getY());
+        FurnitureFootprint footprint = item.getFootprint();
+        int maxX = cell(item.getX() + footprint.getWidth());
+        int maxY = cell(item.getY() + footprint.getLength());
+        if (minX == slot.minX && minY == slot.minY && maxX == slot.maxX && maxY == slot.maxY) {
+            return;
+        }
+        forEachCell(slot, cell -> {
+            List<Furniture> items = cells.get(cell);
+            if (items != null) {
+                items.remove(item);
+                if (items.isEmpty()) {
+                    cells.remove(cell);
+                }
+            }
+        });
+        place(item, slot);
+    }
+
+    // Topmost item whose drawn shape contains the point, or null
+    public Furniture pick(double x, double y) {
+        List<Furniture> items = cells.get(key(cell(x), cell(y)));
+        if (items == null) {
+            return null;
+        }
+        Furniture best = null;
+        long bestSequence = -1;
+        for (Furniture item : items) {
+            Slot slot = slots.get(item);
+            if (slot.sequence > bestSequence && contains(item, x, y)) {
+                best = item;
+                bestSequence = slot.sequence;
+            }
+        }
+        return best;
+    }
+
+    // Items whose footprint bounds intersect the rectangle, in drawing order
+    public List<Furniture> query(double x, double y, double width, double height) {
+        double maxX = x + width;
+        double maxY = y + height;
+        List<Furniture> result = new ArrayList<>();
+        Map<Furniture, Boolean> seen = new IdentityHashMap<>();
+        for (int cx = cell(x); cx <= cell(maxX); cx++) {
+            for (int cy = cell(y); cy <= cell(maxY); cy++) {
+                List<Furniture> items = cells.get(key(cx, cy));
+                if (items == null) {
+                    continue;
+                }
+                for (Furniture item : items) {
+                    FurnitureFootprint footprint = item.getFootprint();
+                    if (item.getX() <= maxX && item.getX() + footprint.getWidth() >= x
+                            && item.getY() <= maxY && item.getY() + footprint.getLength() >= y
+                            && seen.put(item, Boolean.TRUE) == null) {
+                        result.add(item);
+                    }
+                }
+            }
+        }
+        result.sort((a, b) -> Long.compare(slots.get(a).sequence, slots.get(b).sequence));
+        return result;
+    }
+
+    // Items whose footprint bounds lie entirely within the rectangle, in drawing order
+    public List<Furniture> queryInside(double x, double y, double width, double height) {
+        List<Furniture> result = query(x, y, width, height);
+        result.removeIf(item -> {
+            FurnitureFootprint footprint = item.getFootprint();
+            return item.getX() < x || item.getX() + footprint.getWidth() > x + width
+                    || item.getY() < y || item.getY() + footprint.getLength() > y + height;
+        });
+        return result;
+    }
+
+    static boolean contains(Furniture item, double x, double y) {
+        FurnitureFootprint footprint = item.getFootprint();
+        double w = footprint.getWidth();
+        double h = footprint.getLength();
+        double dx = x - item.getX();
+        double dy = y - item.getY();
+        if (dx < 0 || dy < 0 || dx > w || dy > h) {
+            return false;
+        }
+        if (footprint.getShape() == FurnitureFootprint.Shape.OVAL) {
+            double nx = (dx - w / 2) / (w / 2);
+            double ny = (dy - h / 2) / (h / 2);
+            return nx * nx + ny * ny <= 1;
+        }
+        return true;
+    }
+
+    private void place(Furniture item, Slot slot) {
+        FurnitureFootprint footprint = item.getFootprint();
+        slot.minX = cell(item.getX());
+        slot.minY = cell(item.getY());
+        slot.maxX = cell(item.getX() + footprint.getWidth());
+        slot.maxY = cell(item.getY() + footprint.getLength());
+        forEachCell(slot, cell -> cells.computeIfAbsent(cell, k -> new ArrayList<>(4)).add(item));
+    }
+
+    private interface CellVisitor {
+        void visit(long cell);
+    }
+
+    private void forEachCell(Slot slot, CellVisitor visitor) {
+        for (int cx = slot.minX; cx <= slot.maxX; cx++) {
+            for (int cy = slot.minY; cy <= slot.maxY; cy++) {
+                visitor.visit(key(cx, cy));
+            }
+        }
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static class Slot {
+        final long sequence;
+        int minX, minY, maxX, maxY;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
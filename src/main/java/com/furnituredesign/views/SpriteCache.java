@@ -0,0 +1,150 @@
+package com.furnituredesign.views;
+
+import com.furnituredesign.models.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+//SpriteCache
+// Furniture glyphs rasterized once per (type, color, zoom bucket) and then blitted, since a
+// dense plan repeats the same few combinations thousands of times. Zoom is bucketed in
+// quarter steps of a power of two so zooming reuses sprites, which are scaled slightly when
+// drawn. The least recently used sprites are dropped once their pixels exceed the budget.
+// Only used from the FX thread.
+
+public class SpriteCache {
+    public static final long DEFAULT_PIXEL_BUDGET = 4L * 1024 * 1024;
+    // Larger glyphs are cheaper to fill as paths than to keep as images
+    public static final int MAX_SPRITE_SIDE = 512;
+    // Room around the glyph for its outline, in sprite pixels
+    private static final int PADDING = 1;
+    private static final int BUCKETS_PER_DOUBLING = 4;
+
+    public static class Sprite {
+        private final WritableImage image;
+        private final double scale;
+
+        Sprite(WritableImage image, double scale) {
+            this.image = image;
+            this.scale = scale;
+        }
+
+        // Draws the sprite for an item whose footprint starts at (x, y) in the current transform
+        public void draw(GraphicsContext gc, double x, double y) {
+            double padding = PADDING / scale;
+            gc.drawImage(image, x - padding, y - padding, image.getWidth() / scale, image.getHeight() / scale);
+        }
+
+        long pixels() {
+            return (long) image.getWidth() * (long) image.getHeight();
+        }
+    }
+
+    private final long pixelBudget;
+    // Keyed by footprint, color and zoom bucket packed into a long
+    private final Map<Long, Sprite> sprites = new LinkedHashMap<>(64, 0.75f, true);
+    private long pixels;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SpriteCache() {
+        this(DEFAULT_PIXEL_BUDGET);
+    }
+
+    public SpriteCache(long pixelBudget) {
+        this.pixelBudget = pixelBudget;
+    }
+
+    // The sprite for the glyph at this zoom, or null when it would be too large to cache
+    public Sprite get(FurnitureFootprint footprint, int argb, double zoom) {
+        int bucket = (int) Math.round(Math.log(zoom) / Math.log(2) * BUCKETS_PER_DOUBLING);
+        double scale = Math.pow(2, (double) bucket / BUCKETS_PER_DOUBLING);
+        if (Math.max(footprint.getWidth(), footprint.getLength()) * scale > MAX_SPRITE_SIDE) {
+            return null;
+        }
+
+        long key = (long) argb << 32 | (long) footprint.ordinal() << 16 | bucket & 0xFFFF;
+        Sprite sprite = sprites.get(key);
+        if (sprite != null) {
+            hits++;
+            return sprite;
+        }
+        misses++;
+        sprite = rasterize(footprint, ColorCache.get(argb), scale);
+        sprites.put(key, sprite);
+        pixels += sprite.pixels();
+        evict();
+        return sprite;
+    }
+
+    public void clear() {
+        sprites.clear();
+        pixels = 0;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public String getStats() {
+        long lookups = hits + misses;
+        return String.format("%d sprites, %d pixels, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                sprites.size(), pixels, hits, misses, lookups == 0 ? 0.0 : hits * 100.0 / lookups, evictions);
+    }
+
+    private void evict() {
+        Iterator<Sprite> iterator = sprites.values().iterator();
+        // Always keep the sprite just added
+        while (pixels > pixelBudget && sprites.size() > 1) {
+            Sprite eldest = iterator.next();
+            iterator.remove();
+            pixels -= eldest.pixels();
+            evictions++;
+        }
+    }
+
+    private static Sprite rasterize(FurnitureFootprint footprint, Color color, double scale) {
+        double w = footprint.getWidth();
+        double h = footprint.getLength();
+        int width = (int) Math.ceil(w * scale) + 2 * PADDING;
+        int height = (int) Math.ceil(h * scale) + 2 * PADDING;
+
+        Canvas canvas = new Canvas(width, height);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setTransform(scale, 0, 0, scale, PADDING, PADDING);
+        gc.setLineWidth(1 / scale);
+        gc.setFill(color);
+        gc.setStroke(Color.BLACK);
+        switch (footprint.getShape()) {
+            case OVAL:
+                gc.fillOval(0, 0, w, h);
+                gc.strokeOval(0, 0, w, h);
+                break;
+            case ROUND_RECT:
+                gc.fillRoundRect(0, 0, w, h, 15, 15);
+                gc.strokeRoundRect(0, 0, w, h, 15, 15);
+                break;
+            default:
+                gc.fillRect(0, 0, w, h);
+                gc.strokeRect(0, 0, w, h);
+        }
+
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        return new Sprite(canvas.snapshot(parameters, new WritableImage(width, height)), scale);
+    }
+}
@@ -0,0 +1,63 @@
+package com.furnituredesign.views;
+
+//Viewport
+// Pan and zoom of the 2D plan. Furniture and room positions are plan coordinates (canvas
+// pixels at zoom 1); the viewport maps them to the screen as plan * zoom + offset.
+
+public class Viewport {
+    public static final double MIN_ZOOM = 0.01;
+    public static final double MAX_ZOOM = 20;
+
+    private double zoom = 1;
+    private double offsetX;
+    private double offsetY;
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    public double getOffsetX() {
+        return offsetX;
+    }
+
+    public double getOffsetY() {
+        return offsetY;
+    }
+
+    public void reset() {
+        zoom = 1;
+        offsetX = 0;
+        offsetY = 0;
+    }
+
+    public void panBy(double dx, double dy) {
+        offsetX += dx;
+        offsetY += dy;
+    }
+
+    // Zooms by the factor, keeping the plan point under the screen point in place
+    public void zoomAt(double factor, double screenX, double screenY) {
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        double planX = toPlanX(screenX);
+        double planY = toPlanY(screenY);
+        zoom = newZoom;
+        offsetX = screenX - planX * zoom;
+        offsetY = screenY - planY * zoom;
+    }
+
+    public double toScreenX(double planX) {
+        return planX * zoom + offsetX;
+    }
+
+    public double toScreenY(double planY) {
+        return planY * zoom + offsetY;
+    }
+
+    public double toPlanX(double screenX) {
+        return (screenX - offsetX) / zoom;
+    }
+
+    public double toPlanY(double screenY) {
+        return (screenY - offsetY) / zoom;
+    }
+}
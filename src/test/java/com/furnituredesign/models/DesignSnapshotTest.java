@@ -0,0 +1,76 @@
+package com.furnituredesign.models;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+//DesignSnapshotTest
+// A snapshot must keep showing the design as it was, whatever is edited afterwards, and must
+// not let its own items be changed.
+
+class DesignSnapshotTest {
+
+    @Test
+    void laterEditsDoNotReachTheSnapshot() {
+        FurnitureList list = new FurnitureList();
+        // Enough items to span several store pages and a tree level
+        for (int i = 0; i < 100; i++) {
+            Furniture item = list.create(i % 2 == 0 ? "Chair" : "Table");
+            item.setX(i);
+            item.setY(2 * i);
+            item.setColor("#102030");
+        }
+        Room room = new Room(5, 4, 3);
+        DesignSnapshot snapshot = DesignSnapshot.of(room, list);
+
+        list.get(0).setX(500);
+        list.get(40).setColor("#FF0000");
+        list.get(99).setType("Sofa");
+        list.remove(50);
+        list.create("Bed");
+        room.setWidth(9);
+
+        assertEquals(100, snapshot.size());
+        assertEquals(5, snapshot.getRoom().getWidth());
+        List<Furniture> furniture = snapshot.getFurniture();
+        for (int i = 0; i < 100; i++) {
+            Furniture item = furniture.get(i);
+            assertEquals(i, item.getX(), "x of item " + i);
+            assertEquals(2 * i, item.getY(), "y of item " + i);
+            assertEquals(i % 2 == 0 ? "Chair" : "Table", item.getType(), "type of item " + i);
+            assertEquals((int) PackedColor.parse("#102030"), item.getArgb(), "color of item " + i);
+        }
+
+        assertEquals(500, list.get(0).getX());
+        assertEquals(100, list.size());
+        assertEquals("Bed", list.get(99).getType());
+    }
+
+    @Test
+    void snapshotsOfSnapshotsAreIndependent() {
+        FurnitureList list = new FurnitureList();
+        Furniture item = list.create("Chair");
+        item.setX(1);
+        DesignSnapshot first = DesignSnapshot.of(null, list);
+        item.setX(2);
+        DesignSnapshot second = DesignSnapshot.of(null, list);
+        item.setX(3);
+
+        assertEquals(1, first.getFurniture().get(0).getX());
+        assertEquals(2, second.getFurniture().get(0).getX());
+        assertEquals(3, item.getX());
+        assertNull(first.getRoom());
+    }
+
+    @Test
+    void snapshotItemsAreReadOnly() {
+        FurnitureList list = new FurnitureList();
+        list.create("Chair");
+        Furniture copy = DesignSnapshot.of(null, list).getFurniture().get(0);
+
+        assertThrows(UnsupportedOperationException.class, () -> copy.setX(10));
+        assertThrows(UnsupportedOperationException.class, () -> copy.setColor("#000000"));
+        assertEquals(0, list.get(0).getX());
+    }
+}
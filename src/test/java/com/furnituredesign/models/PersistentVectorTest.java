@@ -0,0 +1,109 @@
+package com.furnituredesign.models;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+//PersistentVectorTest
+// Checks every operation against an ArrayList doing the same, across the sizes where the
+// tail fills and the tree grows a level, and that older versions never change.
+
+class PersistentVectorTest {
+
+    @Test
+    void ofMatchesAppendingAcrossLevelBoundaries() {
+        for (int size : new int[] {0, 1, 31, 32, 33, 64, 1023, 1024, 1025, 1056, 1057, 32 * 32 * 32 + 33}) {
+            List<Integer> expected = new ArrayList<>();
+            PersistentVector<Integer> appended = PersistentVector.empty();
+            for (int i = 0; i < size; i++) {
+                expected.add(i);
+                appended = appended.append(i);
+            }
+            assertEquals(expected, appended, "appended, size " + size);
+            assertEquals(expected, PersistentVector.of(expected), "built, size " + size);
+        }
+    }
+
+    @Test
+    void randomEditsMatchArrayList() {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        List<List<Integer>> versionContents = new ArrayList<>();
+
+        for (int step = 0; step < 5000; step++) {
+            int size = expected.size();
+            int operation = size == 0 ? 0 : random.nextInt(10);
+            if (operation <= 3) {
+                int value = random.nextInt();
+                expected.add(value);
+                vector = vector.append(value);
+            } else if (operation <= 5) {
+                int index = random.nextInt(size + 1);
+                int value = random.nextInt();
+                expected.add(index, value);
+                vector = vector.insert(index, value);
+            } else if (operation == 6) {
+                int index = random.nextInt(size);
+                expected.remove(index);
+                vector = vector.without(index);
+            } else if (operation == 7) {
+                int index = random.nextInt(size);
+                int value = random.nextInt();
+                expected.set(index, value);
+                vector = vector.with(index, value);
+            } else {
+                TreeSet<Integer> removed = new TreeSet<>();
+                int count = random.nextInt(Math.min(size, 40) + 1);
+                while (removed.size() < count) {
+                    removed.add(random.nextInt(size));
+                }
+                int[] indexes = removed.stream().mapToInt(Integer::intValue).toArray();
+                for (int i = indexes.length - 1; i >= 0; i--) {
+                    expected.remove(indexes[i]);
+                }
+                vector = vector.withoutAll(indexes);
+            }
+            assertEquals(expected.size(), vector.size());
+            if (step % 50 == 0) {
+                assertEquals(expected, vector);
+                versions.add(vector);
+                versionContents.add(new ArrayList<>(expected));
+            }
+        }
+        assertEquals(expected, vector);
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(versionContents.get(i), versions.get(i), "version " + i);
+        }
+    }
+
+    @Test
+    void withoutAllRejectsIndexesOutOfOrder() {
+        PersistentVector<Integer> vector = PersistentVector.of(List.of(1, 2, 3, 4));
+        assertThrows(IllegalArgumentException.class, () -> vector.withoutAll(new int[] {2, 1}));
+        assertThrows(IllegalArgumentException.class, () -> vector.withoutAll(new int[] {1, 1}));
+        assertEquals(List.of(1, 2, 3, 4), vector);
+    }
+
+    @Test
+    void indexesOutOfBoundsThrow() {
+        PersistentVector<Integer> vector = PersistentVector.of(List.of(1, 2, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.with(-1, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.insert(4, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.without(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.withoutAll(new int[] {0, 3}));
+    }
+
+    @Test
+    void listMutatorsAreUnsupported() {
+        PersistentVector<Integer> vector = PersistentVector.of(List.of(1, 2, 3));
+        assertThrows(UnsupportedOperationException.class, () -> vector.add(4));
+        assertThrows(UnsupportedOperationException.class, () -> vector.remove(0));
+    }
+}
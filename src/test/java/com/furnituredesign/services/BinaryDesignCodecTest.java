@@ -0,0 +1,191 @@
+package com.furnituredesign.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.furnituredesign.models.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+//BinaryDesignCodecTest
+// Whatever is written must read back unchanged, and a damaged file must fail with an
+// IOException before any of its offsets or counts is trusted.
+
+class BinaryDesignCodecTest {
+    private final BinaryDesignCodec codec = new BinaryDesignCodec();
+
+    @TempDir
+    File directory;
+
+    private static List<Furniture> sampleFurniture() {
+        FurnitureList list = new FurnitureList();
+        Furniture chair = list.create("Chair");
+        chair.setColor("#336699");
+        chair.setX(12.5);
+        chair.setY(-3.25);
+        chair.setZ(0.75);
+        chair.setWidth(40);
+        chair.setLength(45.5);
+        chair.setHeight(90);
+        Furniture table = list.create("Table");
+        table.setColor(null);
+        table.setX(200);
+        table.setY(150);
+        Furniture unknown = list.create("Chair");
+        unknown.setType(null);
+        unknown.setColor("not a color");
+        return new ArrayList<>(list);
+    }
+
+    private File writeSample() throws IOException {
+        Room room = new Room(5.5, 4.25, 2.8);
+        room.setWallColor("#F0E0D0");
+        room.setFloorColor(null);
+        File file = new File(directory, "sample.fdb");
+        codec.write(room, sampleFurniture(), file);
+        return file;
+    }
+
+    private static ByteBuffer bytesOf(File file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    void writeThenReadRestoresRoomAndFurniture() throws IOException {
+        Room room = new Room(5.5, 4.25, 2.8);
+        room.setWallColor("#F0E0D0");
+        room.setFloorColor(null);
+        List<Furniture> furniture = sampleFurniture();
+        File file = new File(directory, "design.fdb");
+        codec.write(room, furniture, file);
+
+        Design design = codec.read(file);
+        Room read = design.getRoom();
+        assertEquals(room.getWidth(), read.getWidth());
+        assertEquals(room.getLength(), read.getLength());
+        assertEquals(room.getHeight(), read.getHeight());
+        assertEquals(room.getWallColor(), read.getWallColor());
+        assertNull(read.getFloorColor());
+
+        List<Furniture> items = design.getFurniture();
+        assertEquals(furniture.size(), items.size());
+        for (int i = 0; i < furniture.size(); i++) {
+            Furniture expected = furniture.get(i);
+            Furniture item = items.get(i);
+            assertEquals(expected.getType(), item.getType(), "type of item " + i);
+            assertEquals(expected.getColor(), item.getColor(), "color of item " + i);
+            assertEquals(expected.getX(), item.getX(), "x of item " + i);
+            assertEquals(expected.getY(), item.getY(), "y of item " + i);
+            assertEquals(expected.getZ(), item.getZ(), "z of item " + i);
+            assertEquals(expected.getWidth(), item.getWidth(), "width of item " + i);
+            assertEquals(expected.getLength(), item.getLength(), "length of item " + i);
+            assertEquals(expected.getHeight(), item.getHeight(), "height of item " + i);
+        }
+        assertNull(items.get(1).getColor());
+        assertNull(items.get(2).getType());
+        assertEquals("not a color", items.get(2).getColor());
+    }
+
+    @Test
+    void rewritingReplacesTheWholeFile() throws IOException {
+        File file = writeSample();
+        codec.write(new Room(3, 3, 3), List.of(), file);
+
+        Design design = codec.read(file);
+        assertEquals(3, design.getRoom().getWidth());
+        assertTrue(design.getFurniture().isEmpty());
+        // Nothing is left behind next to it
+        assertArrayEquals(new String[] {file.getName()}, directory.list());
+    }
+
+    @Test
+    void validHeaderIsAccepted() throws IOException {
+        File file = writeSample();
+        ByteBuffer bytes = bytesOf(file);
+        BinaryDesignCodec.Header header = BinaryDesignCodec.readHeader(bytes, bytes.capacity());
+        assertEquals(3, header.furnitureCount);
+        assertEquals(BinaryDesignCodec.HEADER_SIZE, header.recordsOffset);
+
+        // Each type and color once, in the order first written; nulls are not stored
+        String[] strings = BinaryDesignCodec.readStrings(bytes, header);
+        assertEquals(5, strings.length);
+        assertEquals("Chair", strings[0]);
+        assertEquals("Table", strings[2]);
+        assertEquals("not a color", strings[3]);
+    }
+
+    @Test
+    void truncatedFilesAreRejected() throws IOException {
+        File file = writeSample();
+        long length = file.length();
+
+        // Cut inside the header
+        ByteBuffer bytes = bytesOf(file);
+        assertThrows(IOException.class, () -> BinaryDesignCodec.readHeader(bytes, 20));
+
+        // Cut inside the records: the header's offsets point past the end
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(BinaryDesignCodec.HEADER_SIZE + BinaryDesignCodec.RECORD_SIZE);
+        }
+        assertThrows(IOException.class, () -> codec.read(file));
+
+        // Cut inside the string table
+        File other = writeSample();
+        try (RandomAccessFile out = new RandomAccessFile(other, "rw")) {
+            out.setLength(length - 3);
+        }
+        assertThrows(IOException.class, () -> codec.read(other));
+    }
+
+    @Test
+    void corruptHeadersAreRejected() throws IOException {
+        File file = writeSample();
+        ByteBuffer valid = bytesOf(file);
+        long size = valid.capacity();
+
+        assertCorrupt(valid, size, bytes -> bytes.putInt(0, 0x12345678));
+        assertCorrupt(valid, size, bytes -> bytes.putShort(4, (short) (BinaryDesignCodec.VERSION + 1)));
+        assertCorrupt(valid, size, bytes -> bytes.putShort(6, (short) 8));
+        assertCorrupt(valid, size, bytes -> bytes.putInt(8, -1));
+        assertCorrupt(valid, size, bytes -> bytes.putInt(8, Integer.MAX_VALUE));
+        assertCorrupt(valid, size, bytes -> bytes.putInt(12, -1));
+        assertCorrupt(valid, size, bytes -> bytes.putInt(12, Integer.MAX_VALUE));
+        assertCorrupt(valid, size, bytes -> bytes.putLong(16, 8));
+        assertCorrupt(valid, size, bytes -> bytes.putLong(16, Long.MAX_VALUE));
+        assertCorrupt(valid, size, bytes -> bytes.putLong(24, BinaryDesignCodec.HEADER_SIZE - 1));
+        assertCorrupt(valid, size, bytes -> bytes.putLong(24, size + 1));
+        assertCorrupt(valid, size, bytes -> bytes.putLong(24, Long.MIN_VALUE));
+    }
+
+    @Test
+    void corruptStringTablesAreRejected() throws IOException {
+        File file = writeSample();
+        ByteBuffer bytes = bytesOf(file);
+        BinaryDesignCodec.Header header = BinaryDesignCodec.readHeader(bytes, bytes.capacity());
+
+        // A length running past the end of the file
+        bytes.putShort((int) header.stringsOffset, (short) 0xFFFF);
+        assertThrows(IOException.class, () -> BinaryDesignCodec.readStrings(bytes, header));
+
+        assertThrows(IOException.class, () -> BinaryDesignCodec.lookup(new String[2], 2));
+        assertThrows(IOException.class, () -> BinaryDesignCodec.lookup(new String[2], -2));
+        assertNull(BinaryDesignCodec.lookup(new String[2], -1));
+    }
+
+    private interface Damage {
+        void apply(ByteBuffer bytes);
+    }
+
+    private static void assertCorrupt(ByteBuffer valid, long size, Damage damage) {
+        ByteBuffer bytes = ByteBuffer.allocate(valid.capacity());
+        bytes.put(valid.duplicate().clear()).clear();
+        damage.apply(bytes);
+        assertThrows(IOException.class, () -> BinaryDesignCodec.readHeader(bytes, size));
+    }
+}
@@ -0,0 +1,147 @@
+package com.furnituredesign.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.furnituredesign.models.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+//DesignCodecTest
+// The streaming codec must stay interchangeable with the Gson object mapping design files
+// were first written with: each must read what the other writes.
+
+class DesignCodecTest {
+    // Gson set up as DesignService first did, mapping the original model classes below
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final DesignCodec codec = new DesignCodec();
+
+    @TempDir
+    File directory;
+
+    // Fields of the original Design, Room and Furniture, which Gson mapped by name
+    private static class GsonDesign {
+        GsonRoom room;
+        List<GsonFurniture> furniture = new ArrayList<>();
+    }
+
+    private static class GsonRoom {
+        double width, length, height;
+        String wallColor, floorColor;
+    }
+
+    private static class GsonFurniture {
+        String type;
+        double x, y, z;
+        double width, length, height;
+        String color;
+    }
+
+    private static GsonFurniture gsonFurniture(String type, String color, double x, double y) {
+        GsonFurniture item = new GsonFurniture();
+        item.type = type;
+        item.color = color;
+        item.x = x;
+        item.y = y;
+        item.z = 0.25;
+        item.width = 0.5;
+        item.length = 0.75;
+        item.height = 1.5;
+        return item;
+    }
+
+    @Test
+    void gsonReadsWhatTheCodecWrites() throws IOException {
+        Room room = new Room(5.5, 4.25, 2.8);
+        room.setWallColor("#FFFFFF");
+        room.setFloorColor(null);
+        FurnitureList furniture = new FurnitureList();
+        Furniture chair = furniture.create("Chair");
+        chair.setColor("#336699");
+        chair.setX(12.5);
+        chair.setY(-3.25);
+        chair.setZ(0.75);
+        Furniture lamp = furniture.create("Lamp");
+        lamp.setColor(null);
+        lamp.setType(null);
+        File file = new File(directory, "codec.json");
+        codec.write(room, furniture, file);
+
+        GsonDesign design;
+        try (Reader reader = new FileReader(file)) {
+            design = gson.fromJson(reader, GsonDesign.class);
+        }
+        assertEquals(5.5, design.room.width);
+        assertEquals(4.25, design.room.length);
+        assertEquals(2.8, design.room.height);
+        assertEquals(room.getWallColor(), design.room.wallColor);
+        assertNull(design.room.floorColor);
+        assertEquals(2, design.furniture.size());
+        for (int i = 0; i < furniture.size(); i++) {
+            Furniture expected = furniture.get(i);
+            GsonFurniture item = design.furniture.get(i);
+            assertEquals(expected.getType(), item.type, "type of item " + i);
+            assertEquals(expected.getColor(), item.color, "color of item " + i);
+            assertEquals(expected.getX(), item.x, "x of item " + i);
+            assertEquals(expected.getY(), item.y, "y of item " + i);
+            assertEquals(expected.getZ(), item.z, "z of item " + i);
+            assertEquals(expected.getWidth(), item.width, "width of item " + i);
+            assertEquals(expected.getLength(), item.length, "length of item " + i);
+            assertEquals(expected.getHeight(), item.height, "height of item " + i);
+        }
+    }
+
+    @Test
+    void codecReadsWhatGsonWrites() throws IOException {
+        GsonDesign original = new GsonDesign();
+        original.room = new GsonRoom();
+        original.room.width = 6;
+        original.room.length = 4.5;
+        original.room.height = 3;
+        original.room.wallColor = "#FFFFFF";
+        original.room.floorColor = "#CCCCCC";
+        original.furniture.add(gsonFurniture("Sofa", "#808080", 100, 200));
+        original.furniture.add(gsonFurniture("Bed", null, -50.5, 0.125));
+        original.furniture.add(gsonFurniture(null, "walnut", 0, 0));
+        File file = new File(directory, "gson.json");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(gson.toJson(original));
+        }
+
+        Design design = codec.read(file);
+        Room room = design.getRoom();
+        assertEquals(6, room.getWidth());
+        assertEquals(4.5, room.getLength());
+        assertEquals(3, room.getHeight());
+        assertEquals("#FFFFFF", room.getWallColor().toUpperCase());
+        assertEquals("#CCCCCC", room.getFloorColor().toUpperCase());
+        List<Furniture> furniture = design.getFurniture();
+        assertEquals(original.furniture.size(), furniture.size());
+        for (int i = 0; i < furniture.size(); i++) {
+            GsonFurniture expected = original.furniture.get(i);
+            Furniture item = furniture.get(i);
+            assertEquals(expected.type, item.getType(), "type of item " + i);
+            assertEquals(expected.x, item.getX(), "x of item " + i);
+            assertEquals(expected.y, item.getY(), "y of item " + i);
+            assertEquals(expected.z, item.getZ(), "z of item " + i);
+            assertEquals(expected.width, item.getWidth(), "width of item " + i);
+            assertEquals(expected.length, item.getLength(), "length of item " + i);
+            assertEquals(expected.height, item.getHeight(), "height of item " + i);
+        }
+        assertEquals("#808080", furniture.get(0).getColor().toUpperCase());
+        assertNull(furniture.get(1).getColor());
+        // Text that is not a color is kept as written
+        assertEquals("walnut", furniture.get(2).getColor());
+        // The summary reads the same file without the furniture values
+        assertEquals(3, codec.summarize(file).getFurnitureCount());
+    }
+}
@@ -0,0 +1,198 @@
+package com.furnituredesign.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.furnituredesign.models.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+//DesignJournalTest
+// Recovery must give back every edit whose record reached the disk intact and nothing after
+// the first damaged one, across compactions, and nothing at all once the design was saved.
+
+class DesignJournalTest {
+    // Framing of a move record: length, CRC32, then type, index and two doubles
+    private static final int MOVE_RECORD_SIZE = 8 + 1 + 4 + 8 + 8;
+
+    @TempDir
+    File directory;
+
+    private static FurnitureList twoChairs() {
+        FurnitureList list = new FurnitureList();
+        list.create("Chair").setX(1);
+        list.create("Chair").setX(2);
+        return list;
+    }
+
+    private File latestJournal() {
+        File[] journals = directory.listFiles((dir, name) -> name.startsWith("journal-"));
+        assertNotNull(journals);
+        assertEquals(1, journals.length, Arrays.toString(directory.list()));
+        return journals[0];
+    }
+
+    private Design recover() {
+        DesignJournal journal = new DesignJournal(directory);
+        try {
+            return journal.recover();
+        } finally {
+            journal.close();
+        }
+    }
+
+    // Two moves recorded over a fresh design, the second of which may then be damaged
+    private void recordTwoMoves() {
+        DesignJournal journal = new DesignJournal(directory);
+        journal.reset(DesignSnapshot.of(new Room(5, 4, 3), twoChairs()));
+        journal.recordMove(0, 10, 11);
+        journal.recordMove(1, 20, 21);
+        journal.close();
+    }
+
+    @Test
+    void recoversEveryRecordedEdit() {
+        DesignJournal journal = new DesignJournal(directory);
+        FurnitureList list = twoChairs();
+        journal.reset(DesignSnapshot.of(new Room(5, 4, 3), list));
+        Furniture table = list.getStore().add("Table");
+        table.setX(7);
+        journal.recordAdd(table);
+        journal.recordMove(0, 3, 4);
+        journal.recordRemove(1);
+        journal.recordInsert(0, table);
+        Room room = new Room(6, 5, 3);
+        room.setWallColor("#FFEEDD");
+        journal.recordRoom(room);
+        journal.close();
+
+        Design design = recover();
+        assertNotNull(design);
+        assertEquals(6, design.getRoom().getWidth());
+        assertEquals(room.getWallColor(), design.getRoom().getWallColor());
+        List<Furniture> furniture = design.getFurniture();
+        assertEquals(3, furniture.size());
+        assertEquals("Table", furniture.get(0).getType());
+        assertEquals(7, furniture.get(0).getX());
+        assertEquals(3, furniture.get(1).getX());
+        assertEquals(4, furniture.get(1).getY());
+        assertEquals("Table", furniture.get(2).getType());
+    }
+
+    @Test
+    void recordWithBadChecksumEndsTheJournal() throws IOException {
+        recordTwoMoves();
+        File journal = latestJournal();
+        long intact = journal.length() - MOVE_RECORD_SIZE;
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            // Last byte of the second move's y
+            file.seek(journal.length() - 1);
+            int last = file.read();
+            file.seek(journal.length() - 1);
+            file.write(last ^ 0x01);
+        }
+
+        List<Furniture> furniture = recover().getFurniture();
+        assertEquals(10, furniture.get(0).getX());
+        assertEquals(11, furniture.get(0).getY());
+        assertEquals(2, furniture.get(1).getX());
+        // The damaged record is cut off, so the next one is appended where it was
+        assertEquals(intact, journal.length());
+    }
+
+    @Test
+    void tornTailIsDroppedAndAppendingResumesAfterIt() throws IOException {
+        recordTwoMoves();
+        File journal = latestJournal();
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            file.setLength(journal.length() - 5);
+        }
+
+        DesignJournal reopened = new DesignJournal(directory);
+        List<Furniture> furniture = reopened.recover().getFurniture();
+        assertEquals(10, furniture.get(0).getX());
+        assertEquals(2, furniture.get(1).getX());
+        reopened.recordMove(1, 30, 31);
+        reopened.close();
+
+        furniture = recover().getFurniture();
+        assertEquals(10, furniture.get(0).getX());
+        assertEquals(30, furniture.get(1).getX());
+        assertEquals(31, furniture.get(1).getY());
+    }
+
+    @Test
+    void replaysTheJournalOverTheCompactedSnapshot() {
+        // Small enough to compact every few records
+        DesignJournal journal = new DesignJournal(directory, 128);
+        FurnitureList list = twoChairs();
+        journal.reset(DesignSnapshot.of(new Room(5, 4, 3), list));
+        for (int i = 0; i < 40; i++) {
+            Furniture item = list.create(i % 2 == 0 ? "Table" : "Lamp");
+            item.setX(100 + i);
+            journal.recordAdd(item);
+            journal.recordMove(i % list.size(), i, -i);
+            list.get(i % list.size()).setX(i);
+            list.get(i % list.size()).setY(-i);
+            if (i % 5 == 4) {
+                list.remove(0);
+                journal.recordRemove(0);
+            }
+        }
+        journal.close();
+
+        String[] files = directory.list();
+        assertEquals(2, files.length, Arrays.toString(files));
+        assertFalse(Arrays.asList(files).contains("snapshot-1.fdb"), "never compacted");
+
+        List<Furniture> furniture = recover().getFurniture();
+        assertEquals(list.size(), furniture.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(list.get(i).getType(), furniture.get(i).getType(), "type of item " + i);
+            assertEquals(list.get(i).getX(), furniture.get(i).getX(), "x of item " + i);
+            assertEquals(list.get(i).getY(), furniture.get(i).getY(), "y of item " + i);
+        }
+    }
+
+    @Test
+    void markSavedDiscardsTheFilesUntilTheNextEdit() {
+        DesignJournal journal = new DesignJournal(directory);
+        journal.reset(DesignSnapshot.of(new Room(5, 4, 3), twoChairs()));
+        journal.recordMove(0, 10, 11);
+        journal.markSaved(journal.mark());
+        journal.recordMove(1, 20, 21);
+        journal.close();
+
+        // The edit after the save starts over from a snapshot holding the saved state too
+        List<Furniture> furniture = recover().getFurniture();
+        assertEquals(10, furniture.get(0).getX());
+        assertEquals(20, furniture.get(1).getX());
+
+        DesignJournal saved = new DesignJournal(directory);
+        saved.recover();
+        saved.markSaved(saved.mark());
+        saved.close();
+        assertEquals(0, directory.list().length, Arrays.toString(directory.list()));
+        assertNull(recover());
+    }
+
+    @Test
+    void markSavedIsIgnoredAfterLaterEdits() {
+        DesignJournal journal = new DesignJournal(directory);
+        journal.reset(DesignSnapshot.of(new Room(5, 4, 3), twoChairs()));
+        journal.recordMove(0, 10, 11);
+        long mark = journal.mark();
+        journal.recordMove(1, 20, 21);
+        // The save written from the earlier state finishes only now
+        journal.markSaved(mark);
+        journal.close();
+
+        List<Furniture> furniture = recover().getFurniture();
+        assertEquals(10, furniture.get(0).getX());
+        assertEquals(20, furniture.get(1).getX());
+    }
+}
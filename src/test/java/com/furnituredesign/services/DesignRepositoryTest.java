@@ -0,0 +1,92 @@
+package com.furnituredesign.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.furnituredesign.models.*;
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+//DesignRepositoryTest
+// The upper bound of a name search must sort after every name with the prefix and before
+// every other name, in the code point order SQLite compares UTF-8 text in.
+
+class DesignRepositoryTest {
+    private static final String MAX = new String(Character.toChars(Character.MAX_CODE_POINT));
+
+    @TempDir
+    File directory;
+
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    @Test
+    void successorIncrementsTheLastCodePoint() {
+        assertEquals("abd", DesignRepository.successor("abc"));
+        assertEquals("Kitchen:", DesignRepository.successor("Kitchen9"));
+        assertNull(DesignRepository.successor(""));
+    }
+
+    @Test
+    void successorOfAPrefixEndingInFFFFIsTheFirstSupplementaryCodePoint() {
+        String successor = DesignRepository.successor("a\uffff");
+        assertEquals("a\ud800\udc00", successor);
+        // UTF-16 order would put it first; in code point order it follows the whole range
+        assertTrue("a\uffffzzz".compareTo(successor) > 0);
+        assertTrue(compareCodePoints("a\uffffzzz", successor) < 0);
+        assertTrue(compareCodePoints("a\uffff" + MAX, successor) < 0);
+        assertTrue(compareCodePoints("b", successor) > 0);
+    }
+
+    @Test
+    void successorSkipsSurrogatesAndDropsTrailingMaxCodePoints() {
+        assertEquals("x\ue000", DesignRepository.successor("x\ud7ff"));
+        assertEquals("a\ud83d\ude01", DesignRepository.successor("a\ud83d\ude00"));
+        assertEquals("b", DesignRepository.successor("a" + MAX));
+        assertEquals("b", DesignRepository.successor("a" + MAX + MAX));
+        assertNull(DesignRepository.successor(MAX + MAX));
+    }
+
+    @Test
+    void nameSearchFindsExactlyTheNamesWithThePrefix() throws SQLException {
+        Database database = Database.forUrl("jdbc:sqlite:" + new File(directory, "test.db").getPath());
+        try {
+            DesignRepository repository = new DesignRepository(database);
+            String[] names = {"a", "a\uffff", "a\uffffz", "a\ud800\udc00", "a\uffff" + MAX, "b", "a\ud83d\ude00"};
+            for (String name : names) {
+                repository.saveDesign(name, new Room(5, 4, 3), List.of());
+            }
+
+            assertEquals(List.of("a\uffff", "a\uffffz", "a\uffff" + MAX), names(repository, "a\uffff"));
+            assertEquals(List.of("a\uffff" + MAX), names(repository, "a\uffff" + MAX));
+            assertEquals(List.of("a\ud83d\ude00"), names(repository, "a\ud83d\ude00"));
+            assertEquals(names.length, names(repository, "").size());
+        } finally {
+            database.close();
+        }
+    }
+
+    private static List<String> names(DesignRepository repository, String prefix) throws SQLException {
+        List<String> names = new ArrayList<>();
+        for (DesignSummary summary : repository.findDesignsByName(prefix, 0, 100)) {
+            names.add(summary.getName());
+        }
+        names.sort(DesignRepositoryTest::compareCodePoints);
+        return names;
+    }
+}
@@ -0,0 +1,239 @@
+package com.furnituredesign.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.furnituredesign.models.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+//UndoHistoryTest
+// Undo, redo and jumps must restore the design exactly, and the byte cap must drop the
+// oldest edits without losing track of the current position.
+
+class UndoHistoryTest {
+
+    // Applies edits to a plain furniture list and room, as the controller does to the design
+    private static class ListEditor implements UndoHistory.Editor {
+        final FurnitureList furniture = new FurnitureList();
+        Room room = new Room(5, 4, 3);
+
+        @Override
+        public void insert(int index, Furniture item) {
+            furniture.add(index, item);
+        }
+
+        @Override
+        public void remove(int index) {
+            furniture.remove(index);
+        }
+
+        @Override
+        public void move(int index, double x, double y) {
+            Furniture item = furniture.get(index);
+            item.setX(x);
+            item.setY(y);
+        }
+
+        @Override
+        public void setRoom(Room room) {
+            this.room = room;
+        }
+
+        // Identity and position of every item
+        List<String> state() {
+            List<String> state = new ArrayList<>();
+            for (Furniture item : furniture) {
+                state.add(System.identityHashCode(item) + "@" + item.getX() + "," + item.getY());
+            }
+            state.add(room.toString());
+            return state;
+        }
+    }
+
+    @Test
+    void undoAndRedoRestoreEveryState() {
+        ListEditor editor = new ListEditor();
+        UndoHistory history = new UndoHistory(Long.MAX_VALUE);
+        List<List<String>> states = new ArrayList<>();
+        states.add(editor.state());
+
+        Furniture chair = editor.furniture.create("Chair");
+        history.recordAdd(0, chair);
+        states.add(editor.state());
+
+        Furniture table = editor.furniture.create("Table");
+        history.recordAdd(1, table);
+        states.add(editor.state());
+
+        table.setX(40);
+        table.setY(50);
+        history.recordMove(1, table, 0, 0, 40, 50);
+        states.add(editor.state());
+
+        Room before = new Room(editor.room);
+        editor.room.setWidth(7);
+        history.recordRoom(before, editor.room);
+        states.add(editor.state());
+
+        editor.furniture.remove(0);
+        history.recordRemove(new int[] {0}, new Furniture[] {chair});
+        states.add(editor.state());
+
+        assertEquals(5, history.size());
+        assertEquals("Remove Chair", history.getUndoLabel());
+        for (int position = 4; position >= 0; position--) {
+            assertTrue(history.undo(editor));
+            assertEquals(states.get(position), editor.state(), "after undo to " + position);
+        }
+        assertFalse(history.undo(editor));
+        for (int position = 1; position <= 5; position++) {
+            assertTrue(history.redo(editor));
+            assertEquals(states.get(position), editor.state(), "after redo to " + position);
+        }
+        assertFalse(history.canRedo());
+
+        history.jumpTo(2, editor);
+        assertEquals(states.get(2), editor.state());
+        history.jumpTo(5, editor);
+        assertEquals(states.get(5), editor.state());
+    }
+
+    @Test
+    void removalOfSeveralItemsIsOneStep() {
+        ListEditor editor = new ListEditor();
+        UndoHistory history = new UndoHistory(Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            editor.furniture.create("Chair").setX(i);
+        }
+        List<String> before = editor.state();
+
+        // Last to first, so each index is still the item's position when it goes
+        int[] indexes = {3, 1};
+        Furniture[] items = {editor.furniture.get(3), editor.furniture.get(1)};
+        editor.furniture.removeAt(new int[] {1, 3});
+        List<String> after = editor.state();
+        history.recordRemove(indexes, items);
+
+        assertEquals("Remove 2 items", history.getUndoLabel());
+        history.undo(editor);
+        assertEquals(before, editor.state());
+        history.redo(editor);
+        assertEquals(after, editor.state());
+    }
+
+    @Test
+    void capDropsTheOldestEdits() {
+        ListEditor editor = new ListEditor();
+        Furniture chair = editor.furniture.create("Chair");
+        UndoHistory probe = new UndoHistory(Long.MAX_VALUE);
+        probe.recordMove(0, chair, 0, 0, 1, 1);
+        long moveBytes = probe.getBytes();
+
+        UndoHistory history = new UndoHistory(5 * moveBytes);
+        for (int i = 1; i <= 20; i++) {
+            chair.setX(i);
+            history.recordMove(0, chair, i - 1, 0, i, 0);
+            assertTrue(history.getBytes() <= history.getMaxBytes());
+        }
+
+        assertEquals(5, history.size());
+        assertEquals(5, history.getPosition());
+        assertEquals(5, history.undo(100, editor));
+        // Only the last five moves are left to undo
+        assertEquals(15, chair.getX());
+    }
+
+    @Test
+    void evictionWhilePositionedMidHistoryKeepsPositionConsistent() {
+        ListEditor editor = new ListEditor();
+        Furniture chair = editor.furniture.create("Chair");
+        UndoHistory probe = new UndoHistory(Long.MAX_VALUE);
+        probe.recordMove(0, chair, 0, 0, 1, 1);
+        long moveBytes = probe.getBytes();
+
+        UndoHistory history = new UndoHistory(4 * moveBytes);
+        for (int i = 1; i <= 4; i++) {
+            chair.setX(i);
+            history.recordMove(0, chair, i - 1, 0, i, 0);
+        }
+        // Back to x = 2, with two moves left to redo
+        assertEquals(2, history.undo(2, editor));
+        assertEquals(2, chair.getX());
+        assertEquals(2, history.getPosition());
+        assertTrue(history.canRedo());
+
+        // A new edit discards the redoable moves, so nothing needs evicting yet
+        chair.setY(10);
+        history.recordMove(0, chair, 2, 0, 2, 10);
+        assertEquals(3, history.size());
+        assertEquals(3, history.getPosition());
+        assertFalse(history.canRedo());
+
+        // Two more: the oldest edit goes, and the position moves with it
+        chair.setX(3);
+        history.recordMove(0, chair, 2, 10, 3, 10);
+        chair.setX(4);
+        history.recordMove(0, chair, 3, 10, 4, 10);
+        assertEquals(4, history.size());
+        assertEquals(4, history.getPosition());
+        assertTrue(history.getBytes() <= history.getMaxBytes());
+
+        // Undoing everything that is left ends where the dropped edit had left the chair
+        assertEquals(4, history.undo(100, editor));
+        assertEquals(1, chair.getX());
+        assertEquals(0, chair.getY());
+        assertEquals(4, history.redo(100, editor));
+        assertEquals(4, chair.getX());
+        assertEquals(10, chair.getY());
+    }
+
+    @Test
+    void aSingleEditOverTheCapIsStillKept() {
+        ListEditor editor = new ListEditor();
+        Furniture chair = editor.furniture.create("Chair");
+        UndoHistory history = new UndoHistory(1);
+        history.recordMove(0, chair, 0, 0, 5, 5);
+        history.recordMove(0, chair, 5, 5, 6, 6);
+
+        assertEquals(1, history.size());
+        assertEquals(1, history.getPosition());
+        assertTrue(history.undo(editor));
+        assertEquals(5, chair.getX());
+    }
+
+    @Test
+    void rejectsMismatchedRemovalsAndBadCaps() {
+        UndoHistory history = new UndoHistory();
+        assertThrows(IllegalArgumentException.class,
+                () -> history.recordRemove(new int[] {0, 1}, new Furniture[1]));
+        assertThrows(IllegalArgumentException.class, () -> new UndoHistory(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> history.jumpTo(1, new ListEditor()));
+    }
+
+    @Test
+    void aDroppedRemovalLetsTheStoreReuseTheRow() throws InterruptedException {
+        ListEditor editor = new ListEditor();
+        editor.furniture.create("Chair");
+        UndoHistory history = new UndoHistory(1);
+        Furniture[] removed = {editor.furniture.remove(0)};
+        history.recordRemove(new int[] {0}, removed);
+        int row = removed[0].getHandle();
+        removed = null;
+
+        // While the edit holds the item its row stays taken
+        assertNotEquals(row, editor.furniture.create("Table").getHandle());
+
+        // Pushed out by the next edit; the row comes back once the item has been collected
+        Furniture desk = editor.furniture.create("Desk");
+        history.recordAdd(0, desk);
+        assertEquals(1, history.size());
+        boolean reused = false;
+        for (int attempt = 0; attempt < 50 && !reused; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+            reused = editor.furniture.create("Lamp").getHandle() == row;
+        }
+        assertTrue(reused);
+    }
+}
@@ -0,0 +1,111 @@
+package com.furnituredesign.views;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.furnituredesign.models.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+//CollisionDetectorTest
+// Overlaps follow the drawn shapes - circles for chairs, rectangles for tables - with edges
+// that only touch not counting, and the sweep must find exactly the pairs a check of every
+// pair would.
+
+class CollisionDetectorTest {
+    private final FurnitureList furniture = new FurnitureList();
+    private final SpatialIndex index = new SpatialIndex();
+    private final CollisionDetector detector = new CollisionDetector(index);
+
+    // Chairs are circles of radius 15 in a 30 x 30 footprint, tables 50 x 30 rectangles
+    private Furniture place(String type, double x, double y) {
+        Furniture item = furniture.create(type);
+        item.setX(x);
+        item.setY(y);
+        index.insert(item);
+        return item;
+    }
+
+    private static boolean overlap(Furniture a, Furniture b) {
+        return CollisionDetector.overlaps(a.getFootprint(), a.getX(), a.getY(), b.getFootprint(), b);
+    }
+
+    @Test
+    void rectanglesOverlapOnlyWhenTheirAreasDo() {
+        Furniture table = place("Table", 0, 0);
+        assertTrue(overlap(table, place("Table", 40, 20)));
+        // Sharing an edge or a corner is not an overlap
+        assertFalse(overlap(table, place("Table", 50, 0)));
+        assertFalse(overlap(table, place("Table", 50, 30)));
+        assertFalse(overlap(table, place("Table", 0, 31)));
+    }
+
+    @Test
+    void circlesOverlapByTheDistanceBetweenTheirCentres() {
+        Furniture chair = place("Chair", 0, 0);
+        assertTrue(overlap(chair, place("Chair", 29, 0)));
+        assertFalse(overlap(chair, place("Chair", 30, 0)));
+        // Bounding boxes overlap on the diagonal, the circles only when close enough
+        assertTrue(overlap(chair, place("Chair", 21, 21)));
+        assertFalse(overlap(chair, place("Chair", 22, 22)));
+    }
+
+    @Test
+    void circleAgainstRectangleUsesTheNearestPointOfTheRectangle() {
+        Furniture chair = place("Chair", 0, 0);
+        Furniture beside = place("Table", 25, 0);
+        Furniture diagonal = place("Table", 28, 28);
+        Furniture nearCorner = place("Table", 24, 24);
+
+        assertTrue(overlap(chair, beside));
+        assertTrue(overlap(beside, chair));
+        // The box corner is inside the chair's bounds but outside its circle
+        assertFalse(overlap(chair, diagonal));
+        assertFalse(overlap(diagonal, chair));
+        assertTrue(overlap(chair, nearCorner));
+    }
+
+    @Test
+    void collidesAtChecksTheTargetPositionAgainstOtherItems() {
+        Furniture table = place("Table", 100, 100);
+        Furniture chair = place("Chair", 0, 0);
+
+        assertFalse(detector.collidesAt(chair, 0, 0));
+        assertTrue(detector.collidesAt(chair, 120, 100));
+        assertFalse(detector.collidesAt(chair, 150, 100));
+        // A circle tucked against the table's corner
+        assertFalse(detector.collidesAt(chair, 74, 74));
+        // An item never collides with itself
+        assertFalse(detector.collidesAt(table, 101, 101));
+    }
+
+    @Test
+    void findAllOverlapsMatchesCheckingEveryPair() {
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            place(i % 3 == 0 ? "Chair" : i % 3 == 1 ? "Table" : "Bed",
+                    random.nextInt(800), random.nextInt(600));
+        }
+
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < furniture.size(); i++) {
+            for (int j = i + 1; j < furniture.size(); j++) {
+                if (overlap(furniture.get(i), furniture.get(j))) {
+                    expected.add(i + "-" + j);
+                }
+            }
+        }
+        Set<String> found = new HashSet<>();
+        List<CollisionDetector.Overlap> overlaps = detector.findAllOverlaps(furniture);
+        for (CollisionDetector.Overlap overlap : overlaps) {
+            int first = furniture.indexOf(overlap.getFirst());
+            int second = furniture.indexOf(overlap.getSecond());
+            assertTrue(found.add(Math.min(first, second) + "-" + Math.max(first, second)), "reported twice");
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, found);
+        assertEquals(expected.size(), overlaps.size());
+    }
+}
@@ -0,0 +1,122 @@
+package com.furnituredesign.views;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.furnituredesign.models.*;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+//SpatialIndexTest
+// Picks and queries must find an item from every cell its footprint touches, report each
+// item once, follow moves and removals, and order results by when items were added.
+
+class SpatialIndexTest {
+    private final FurnitureList furniture = new FurnitureList();
+
+    // Tables are 50 x 30 rectangles on the plan, chairs 30 x 30 ovals
+    private Furniture table(double x, double y) {
+        Furniture item = furniture.create("Table");
+        item.setX(x);
+        item.setY(y);
+        return item;
+    }
+
+    @Test
+    void itemCrossingCellBoundariesIsFoundFromEveryCell() {
+        SpatialIndex index = new SpatialIndex(64);
+        // Spans cells (0, 0) to (1, 1)
+        Furniture table = table(55, 55);
+        index.insert(table);
+
+        assertSame(table, index.pick(60, 60));
+        assertSame(table, index.pick(100, 60));
+        assertSame(table, index.pick(60, 80));
+        assertSame(table, index.pick(104, 84));
+        assertNull(index.pick(106, 60));
+        assertEquals(List.of(table), index.query(100, 70, 5, 5));
+        assertEquals(List.of(table), index.query(0, 0, 56, 56));
+        assertTrue(index.query(0, 0, 50, 50).isEmpty());
+    }
+
+    @Test
+    void queryReportsEachItemOnceInDrawingOrder() {
+        // Cells much smaller than the items, so every item sits in many of them
+        SpatialIndex index = new SpatialIndex(8);
+        Furniture right = table(300, 10);
+        Furniture left = table(10, 10);
+        Furniture middle = table(150, 10);
+        index.rebuild(furniture);
+
+        assertEquals(List.of(right, left, middle), index.query(0, 0, 400, 100));
+        assertEquals(List.of(right, middle), index.query(155, 20, 200, 5));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void pickReturnsTheTopmostItemAndKeepsOrderAcrossMoves() {
+        SpatialIndex index = new SpatialIndex();
+        Furniture below = table(0, 0);
+        Furniture above = table(20, 10);
+        index.rebuild(furniture);
+        assertSame(above, index.pick(30, 20));
+
+        // Moving the lower item over the other does not bring it to the top
+        below.setX(200);
+        index.update(below);
+        below.setX(25);
+        index.update(below);
+        assertSame(above, index.pick(30, 20));
+        assertSame(below, index.pick(26, 2));
+
+        index.remove(above);
+        assertSame(below, index.pick(30, 20));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void updateMovesTheItemBetweenCells() {
+        SpatialIndex index = new SpatialIndex(64);
+        Furniture table = table(10, 10);
+        index.insert(table);
+
+        table.setX(500);
+        table.setY(-300);
+        index.update(table);
+        assertNull(index.pick(20, 20));
+        assertTrue(index.query(0, 0, 100, 100).isEmpty());
+        assertSame(table, index.pick(510, -290));
+        assertEquals(List.of(table), index.query(520, -280, 1, 1));
+    }
+
+    @Test
+    void ovalsArePickedByTheirShapeNotTheirBounds() {
+        SpatialIndex index = new SpatialIndex();
+        Furniture chair = furniture.create("Chair");
+        assertEquals(FurnitureFootprint.Shape.OVAL, chair.getFootprint().getShape());
+        chair.setX(100);
+        chair.setY(100);
+        index.insert(chair);
+
+        assertSame(chair, index.pick(115, 115));
+        assertSame(chair, index.pick(101, 115));
+        // Corner of the bounding box, outside the circle
+        assertNull(index.pick(102, 102));
+        // Queries still go by the bounding box
+        assertEquals(List.of(chair), index.query(95, 95, 8, 8));
+    }
+
+    @Test
+    void queryInsideKeepsOnlyItemsWhollyInTheRectangle() {
+        SpatialIndex index = new SpatialIndex(64);
+        Furniture inside = table(10, 10);
+        Furniture straddling = table(90, 10);
+        Furniture outside = table(300, 300);
+        index.rebuild(furniture);
+
+        assertEquals(List.of(inside, straddling), index.query(0, 0, 100, 100));
+        assertEquals(List.of(inside), index.queryInside(0, 0, 100, 100));
+        assertEquals(List.of(inside, straddling), index.queryInside(0, 0, 140, 40));
+        assertTrue(index.queryInside(20, 0, 100, 100).isEmpty());
+        assertEquals(List.of(inside, straddling, outside), index.queryInside(0, 0, 400, 400));
+    }
+}